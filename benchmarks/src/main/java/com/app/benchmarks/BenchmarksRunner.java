@@ -0,0 +1,18 @@
+package com.app.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// runs benchmarks with standard jmh command line options, allocation rate is always reported by gc profiler
+// java --enable-preview -jar benchmarks.jar [jmh options, e.g. CarsServiceBenchmark -p rows=10000]
+public class BenchmarksRunner {
+    public static void main(String[] args) throws Exception {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
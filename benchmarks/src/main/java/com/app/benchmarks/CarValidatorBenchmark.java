@@ -0,0 +1,45 @@
+package com.app.benchmarks;
+
+import com.app.persistence.model.Car;
+import com.app.service.validation.CarValidator;
+import com.app.service.validation.CarsValidationTask;
+import com.app.service.validation.ValidationReport;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class CarValidatorBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    private List<Car> cars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cars = Arrays.asList(CarsDataset.cars(rows));
+    }
+
+    @Benchmark
+    public void validate(Blackhole blackhole) {
+        var carValidator = new CarValidator();
+        for (Car car : cars) {
+            blackhole.consume(carValidator.validate(car));
+        }
+    }
+
+    @Benchmark
+    public ValidationReport validateInParallel() {
+        return ForkJoinPool.commonPool().invoke(new CarsValidationTask(cars, new boolean[cars.size()], 0));
+    }
+}
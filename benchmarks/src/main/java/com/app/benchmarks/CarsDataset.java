@@ -0,0 +1,87 @@
+package com.app.benchmarks;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+// synthetic cars, generated with fixed seed so every run measures the same data
+final class CarsDataset {
+
+    private static final String[] MODELS = {
+            "BMW", "RENAULT", "MAZDA", "OPEL", "MERCEDES", "FIAT", "HONDA", "SKODA"
+    };
+    private static final String[] COMPONENTS = {
+            "ABS", "VIDEO PLAYER", "SPOLIER", "AIRBAR SENSOR", "DASHCAM", "TUNER",
+            "SPEAKER", "BACKUP CAMERA", "BATTERY", "BUMPER", "REMOTE LOCK"
+    };
+    private static final long SEED = 20200501L;
+    private static final Path DATASETS_DIRECTORY = Path.of(System.getProperty("java.io.tmpdir"), "car-system-benchmarks");
+
+    private final Random random = new Random(SEED);
+
+    private CarsDataset() {
+    }
+
+    // json file with given number of cars, it is generated only once and reused by next runs
+    static String jsonFile(int rows) {
+        Path file = DATASETS_DIRECTORY.resolve("cars-" + rows + ".json");
+        if (Files.isRegularFile(file)) {
+            return file.toString();
+        }
+        try {
+            Files.createDirectories(DATASETS_DIRECTORY);
+            Path temporaryFile = Files.createTempFile(DATASETS_DIRECTORY, "cars-" + rows, ".tmp");
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            var dataset = new CarsDataset();
+            try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8);
+                 JsonWriter jsonWriter = gson.newJsonWriter(writer)) {
+                jsonWriter.beginArray();
+                for (int i = 0; i < rows; i++) {
+                    gson.toJson(dataset.nextCar(), Car.class, jsonWriter);
+                }
+                jsonWriter.endArray();
+            }
+            Files.move(temporaryFile, file);
+            return file.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Car[] cars(int rows) {
+        var dataset = new CarsDataset();
+        Car[] cars = new Car[rows];
+        for (int i = 0; i < rows; i++) {
+            cars[i] = dataset.nextCar();
+        }
+        return cars;
+    }
+
+    private Car nextCar() {
+        Set<String> components = new LinkedHashSet<>();
+        int componentsCount = 1 + random.nextInt(6);
+        for (int i = 0; i < componentsCount; i++) {
+            components.add(COMPONENTS[random.nextInt(COMPONENTS.length)]);
+        }
+        return Car.builder()
+                .model(MODELS[random.nextInt(MODELS.length)])
+                .price(BigDecimal.valueOf(1_000 + random.nextInt(49_000)))
+                .color(Color.values()[random.nextInt(Color.values().length)])
+                .mileage(random.nextInt(10_000))
+                .components(components)
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.app.benchmarks;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.app.service.cache.QueryCache;
+import com.app.service.cube.CubeQuery;
+import com.app.service.cube.Dimension;
+import com.app.service.cube.Group;
+import com.app.service.enums.SortCriterion;
+import com.app.service.parallel.ParallelExecutor;
+import com.app.service.query.CarQuery;
+import com.app.service.service.CarsService;
+import com.app.service.stats.CarStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// every call computes its query, service keeps no results in query cache, see QueryCacheBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class CarsServiceBenchmark {
+
+    private static final BigDecimal PRICE_FROM = BigDecimal.valueOf(20_000);
+    private static final BigDecimal PRICE_TO = BigDecimal.valueOf(21_000);
+    private static final CubeQuery MODEL_COLOR_PRICE_BAND = CubeQuery.builder()
+            .groupBy(Dimension.MODEL, Dimension.COLOR, Dimension.PRICE_BAND)
+            .build();
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    // false runs everything in calling thread, true splits big work across dedicated pool
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private ParallelExecutor executor;
+    private CarsService carsService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = parallel ? ParallelExecutor.withPool() : ParallelExecutor.sequential();
+        carsService = new CarsService(CarsDataset.jsonFile(rows), false, executor, new QueryCache(0, 0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SortParameters {
+        @Param
+        private SortCriterion criterion;
+        @Param({"true", "false"})
+        private boolean ascending;
+    }
+
+    @Benchmark
+    public List<Car> sortCars(SortParameters parameters) {
+        return carsService.sortCars(parameters.criterion, parameters.ascending);
+    }
+
+    @Benchmark
+    public List<Car> sortCarsPage(SortParameters parameters) {
+        return carsService.sortCars(parameters.criterion, parameters.ascending, 100, 20);
+    }
+
+    @Benchmark
+    public List<Car> greaterMileage() {
+        return carsService.greaterMileage(9_900);
+    }
+
+    @Benchmark
+    public Set<Car> inPriceRange() {
+        return carsService.inPriceRange(PRICE_FROM, PRICE_TO);
+    }
+
+    @Benchmark
+    public List<Car> query() {
+        return carsService.query(CarQuery.builder()
+                .colors(Color.BLUE)
+                .priceLessThan(PRICE_TO)
+                .withAllComponents("ABS")
+                .sortBy(SortCriterion.MILEAGE, true)
+                .limit(20)
+                .build());
+    }
+
+    @Benchmark
+    public Map<String, List<Car>> componentsInCars() {
+        return carsService.componentsInCars();
+    }
+
+    @Benchmark
+    public List<Car> carsWithAllComponents() {
+        return carsService.carsWithAllComponents(Set.of("ABS", "DASHCAM"));
+    }
+
+    @Benchmark
+    public List<Car> mostExpensive() {
+        return carsService.mostExpensive();
+    }
+
+    @Benchmark
+    public List<Car> mostExpensiveTop10() {
+        return carsService.mostExpensive(10);
+    }
+
+    @Benchmark
+    public Map<String, List<Car>> mostExpensiveModel() {
+        return carsService.mostExpensiveModel();
+    }
+
+    @Benchmark
+    public Map<Color, Long> carColors() {
+        return carsService.carColors();
+    }
+
+    @Benchmark
+    public String priceStats() {
+        return carsService.priceStats();
+    }
+
+    @Benchmark
+    public String mileageStats() {
+        return carsService.mileageStats();
+    }
+
+    // cube is built once, so this measures rollup of its cells
+    @Benchmark
+    public List<Group> groupByModelColorPriceBand() {
+        return carsService.groupBy(MODEL_COLOR_PRICE_BAND);
+    }
+
+    // priceStats, mileageStats, carColors and mostExpensiveModel read cached statistics,
+    // this one measures the pass which computes them
+    @Benchmark
+    public CarStatistics statisticsPass() {
+        List<Car> cars = carsService.getCars();
+        return executor.execute(cars.size(), () -> executor
+                .stream(cars)
+                .collect(CarStatistics.collector()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.app.benchmarks;
+
+import com.app.persistence.converter.JsonCarsConverter;
+import com.app.persistence.model.Car;
+import com.app.service.service.CarsLoader;
+import com.app.service.service.CarsService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    private String filename;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filename = CarsDataset.jsonFile(rows);
+        // first load writes snapshot used by initFromSnapshot
+        new CarsService(filename);
+    }
+
+    @Benchmark
+    public List<Car> fromJson() {
+        return new JsonCarsConverter(filename).fromJson().orElseThrow();
+    }
+
+    @Benchmark
+    public long fromJsonStream() {
+        try (var cars = new JsonCarsConverter(filename).fromJsonStream()) {
+            return cars.count();
+        }
+    }
+
+    @Benchmark
+    public void loadAndValidate(Blackhole blackhole) {
+        new CarsLoader(blackhole::consume).load(filename);
+    }
+
+    @Benchmark
+    public CarsService initFromSnapshot() {
+        return new CarsService(filename);
+    }
+
+    @State(Scope.Thread)
+    public static class NoSnapshot {
+
+        // snapshot is removed before every invocation, so CarsService has to parse and validate json file
+        @Setup(Level.Invocation)
+        public void removeSnapshot(LoadBenchmark benchmark) throws IOException {
+            Files.deleteIfExists(Path.of(benchmark.filename + ".snapshot"));
+        }
+    }
+
+    @Benchmark
+    public CarsService initFromJson(NoSnapshot noSnapshot) {
+        return new CarsService(filename);
+    }
+}
@@ -0,0 +1,57 @@
+package com.app.benchmarks;
+
+import com.app.persistence.model.Car;
+import com.app.service.cache.QueryCache;
+import com.app.service.enums.SortCriterion;
+import com.app.service.parallel.ParallelExecutor;
+import com.app.service.service.CarsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// repeated queries answered by query cache, CarsServiceBenchmark measures the same queries without cache
+// cache has no weight limit, so results of every data set are kept and every call is a hit
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+@State(Scope.Benchmark)
+public class QueryCacheBenchmark {
+
+    private static final BigDecimal PRICE_FROM = BigDecimal.valueOf(20_000);
+    private static final BigDecimal PRICE_TO = BigDecimal.valueOf(21_000);
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    private CarsService carsService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        carsService = new CarsService(CarsDataset.jsonFile(rows), false, ParallelExecutor.sequential(),
+                new QueryCache(QueryCache.DEFAULT_MAX_ENTRIES, Long.MAX_VALUE));
+        carsService.sortCars(SortCriterion.PRICE, true);
+        carsService.inPriceRange(PRICE_FROM, PRICE_TO);
+        carsService.componentsInCars();
+    }
+
+    @Benchmark
+    public List<Car> sortCars() {
+        return carsService.sortCars(SortCriterion.PRICE, true);
+    }
+
+    @Benchmark
+    public Set<Car> inPriceRange() {
+        return carsService.inPriceRange(PRICE_FROM, PRICE_TO);
+    }
+
+    @Benchmark
+    public Map<String, List<Car>> componentsInCars() {
+        return carsService.componentsInCars();
+    }
+}
@@ -4,9 +4,15 @@ import com.app.persistence.converter.generic.JsonConverter;
 import com.app.persistence.model.Car;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class JsonCarsConverter extends JsonConverter<List<Car>> {
     public JsonCarsConverter(String jsonFilename) {
         super(jsonFilename);
     }
+
+    // cars are read one by one, so whole list is never kept in memory
+    public Stream<Car> fromJsonStream() {
+        return fromJsonArray(Car.class);
+    }
 }
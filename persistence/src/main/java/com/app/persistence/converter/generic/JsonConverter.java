@@ -1,17 +1,41 @@
 package com.app.persistence.converter.generic;
 
 import com.app.persistence.exception.JsonConversionException;
+import com.app.persistence.metrics.Counter;
+import com.app.persistence.metrics.LatencyHistogram;
+import com.app.persistence.metrics.Metrics;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public abstract class JsonConverter<T> {
 
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private static final LatencyHistogram TO_JSON = Metrics.latency("json.toJson");
+    private static final LatencyHistogram FROM_JSON = Metrics.latency("json.fromJson");
+    private static final LatencyHistogram PARSE_ELEMENT = Metrics.latency("json.parseElement");
+    private static final Counter ELEMENTS = Metrics.counter("json.elements");
+    private static final Counter ERRORS = Metrics.counter("json.errors");
+
     private final String jsonFilename;
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private final Type type = ((ParameterizedType)getClass().getGenericSuperclass()).getActualTypeArguments()[0];
@@ -22,22 +46,108 @@ public abstract class JsonConverter<T> {
 
     // conversion from object to json
     public void toJson(final T element) {
+        long start = Metrics.start();
         try (FileWriter fileWriter = new FileWriter(jsonFilename)) {
             if (element == null) {
                 throw new NullPointerException("ELEMENT IS NULL");
             }
             gson.toJson(element, fileWriter);
         } catch (Exception e) {
+            ERRORS.increment();
             throw new JsonConversionException(e.getMessage());
+        } finally {
+            TO_JSON.stop(start);
         }
     }
 
     // conversion from json to object
     public Optional<T> fromJson() {
+        long start = Metrics.start();
         try (FileReader fileReader = new FileReader(jsonFilename)) {
             return Optional.of(gson.fromJson(fileReader, type));
         } catch (Exception e) {
+            ERRORS.increment();
+            throw new JsonConversionException(e.getMessage());
+        } finally {
+            FROM_JSON.stop(start);
+        }
+    }
+
+    // streaming conversion from json array to its elements, one element at a time
+    // returned stream holds an open file channel, so it has to be closed by the caller
+    protected <E> Stream<E> fromJsonArray(final Class<E> elementType) {
+        try {
+            var fileChannel = FileChannel.open(Path.of(jsonFilename));
+            var jsonReader = gson.newJsonReader(new BufferedReader(
+                    Channels.newReader(fileChannel, StandardCharsets.UTF_8), READ_BUFFER_SIZE));
+            try {
+                jsonReader.beginArray();
+            } catch (IOException e) {
+                close(jsonReader);
+                throw e;
+            }
+            return StreamSupport
+                    .stream(new JsonArraySpliterator<>(jsonReader, elementType), false)
+                    .onClose(() -> close(jsonReader));
+        } catch (Exception e) {
+            throw new JsonConversionException(e.getMessage());
+        }
+    }
+
+    private static void close(JsonReader jsonReader) {
+        try {
+            jsonReader.close();
+        } catch (IOException e) {
             throw new JsonConversionException(e.getMessage());
         }
     }
+
+    private final class JsonArraySpliterator<E> extends Spliterators.AbstractSpliterator<E> {
+
+        private final JsonReader jsonReader;
+        private final Class<E> elementType;
+        private boolean finished;
+
+        private JsonArraySpliterator(JsonReader jsonReader, Class<E> elementType) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.jsonReader = jsonReader;
+            this.elementType = elementType;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            E element;
+            long start = Metrics.start();
+            try {
+                if (finished) {
+                    return false;
+                }
+                if (!jsonReader.hasNext()) {
+                    finish();
+                    return false;
+                }
+                element = gson.fromJson(jsonReader, elementType);
+                if (element == null) {
+                    throw new NullPointerException("ELEMENT IS NULL");
+                }
+            } catch (Exception e) {
+                ERRORS.increment();
+                throw new JsonConversionException(e.getMessage());
+            }
+            // time spent in action belongs to the consumer, so it is not included
+            PARSE_ELEMENT.stop(start);
+            ELEMENTS.increment();
+            action.accept(element);
+            return true;
+        }
+
+        // like fromJson, document has to end right after the array, so truncated files and trailing data are rejected
+        private void finish() throws IOException {
+            finished = true;
+            jsonReader.endArray();
+            if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("JSON DOCUMENT WAS NOT FULLY CONSUMED");
+            }
+        }
+    }
 }
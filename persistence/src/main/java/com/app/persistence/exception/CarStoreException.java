@@ -0,0 +1,7 @@
+package com.app.persistence.exception;
+
+public class CarStoreException extends RuntimeException {
+    public CarStoreException(String message) {
+        super(message);
+    }
+}
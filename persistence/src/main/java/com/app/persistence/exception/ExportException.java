@@ -0,0 +1,7 @@
+package com.app.persistence.exception;
+
+public class ExportException extends RuntimeException {
+    public ExportException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.app.persistence.exception;
+
+public class MetricsException extends RuntimeException {
+    public MetricsException(String message) {
+        super(message);
+    }
+}
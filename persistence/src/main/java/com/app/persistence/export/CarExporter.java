@@ -0,0 +1,171 @@
+package com.app.persistence.export;
+
+import com.app.persistence.exception.ExportException;
+import com.app.persistence.metrics.Counter;
+import com.app.persistence.metrics.LatencyHistogram;
+import com.app.persistence.metrics.Metrics;
+import com.app.persistence.model.Car;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+// writes cars to file as json lines or csv, e.g. result of query over millions of cars
+// cars are cut into chunks, chunks are serialized (and gzipped) in parallel and written in order through file channel,
+// at most maxChunksInFlight chunks are serialized or waiting at a time, so memory used depends on chunk size, not number of cars
+// gzipped chunks are separate gzip members, file made of them is read by gzip tools and GZIPInputStream as one stream
+// file is written to temporary file first and then moved, so it is never seen half written
+//
+// new CarExporter(ExportFormat.CSV, true).export(carsService.sortCars(SortCriterion.PRICE, true), "cars.csv.gz");
+public class CarExporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4_096;
+
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private static final LatencyHistogram EXPORT = Metrics.latency("export.export");
+    private static final LatencyHistogram CHUNK = Metrics.latency("export.chunk");
+    private static final Counter CARS = Metrics.counter("export.cars");
+    private static final Counter BYTES = Metrics.counter("export.bytes");
+
+    private final ExportFormat format;
+    private final boolean gzip;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final Executor executor;
+
+    // chunks are serialized in common pool, two chunks for every its thread can be in flight
+    public CarExporter(ExportFormat format, boolean gzip) {
+        this(format, gzip, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool(), 2 * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    // executor is owned by caller, executor running tasks in calling thread exports sequentially
+    public CarExporter(ExportFormat format, boolean gzip, int chunkSize, Executor executor, int maxChunksInFlight) {
+        if (format == null || executor == null) {
+            throw new ExportException("FORMAT OR EXECUTOR IS NULL");
+        }
+        if (chunkSize <= 0 || maxChunksInFlight <= 0) {
+            throw new ExportException("CHUNK SIZE OR CHUNKS IN FLIGHT VALUE IS NOT CORRECT: " + chunkSize + ", " + maxChunksInFlight);
+        }
+        this.format = format;
+        this.gzip = gzip;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    // cars are read once, in order, and written in the same order; returns number of written cars
+    public long export(Iterable<Car> cars, String filename) {
+        if (cars == null || filename == null) {
+            throw new ExportException("CARS OR FILENAME IS NULL");
+        }
+        long start = Metrics.start();
+        Path path = Path.of(filename);
+        // every export writes its own temporary file, so exports to the same file can run at once
+        // and the last one moved replaces the others
+        Path temporaryPath;
+        try {
+            temporaryPath = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            EXPORT.stop(start);
+            throw new ExportException(e.getMessage());
+        }
+        Queue<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+            Iterator<Car> iterator = cars.iterator();
+            boolean first = true;
+            while (first || iterator.hasNext()) {
+                List<Car> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                }
+                boolean header = first;
+                inFlight.add(CompletableFuture.supplyAsync(() -> serialize(chunk, header), executor));
+                first = false;
+                written += chunk.size();
+                if (inFlight.size() >= maxChunksInFlight) {
+                    write(channel, inFlight.remove());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(channel, inFlight.remove());
+            }
+            channel.force(false);
+        } catch (Exception e) {
+            inFlight.forEach(chunk -> chunk.cancel(false));
+            delete(temporaryPath);
+            throw new ExportException(e instanceof CompletionException && e.getCause() != null
+                    ? e.getCause().getMessage()
+                    : e.getMessage());
+        } finally {
+            EXPORT.stop(start);
+        }
+        try {
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            delete(temporaryPath);
+            throw new ExportException(e.getMessage());
+        }
+        CARS.add(written);
+        return written;
+    }
+
+    private byte[] serialize(List<Car> chunk, boolean header) {
+        long start = Metrics.start();
+        StringBuilder sb = new StringBuilder(chunk.size() * 128);
+        if (header) {
+            format.appendHeader(sb);
+        }
+        chunk.forEach(car -> format.appendCar(sb, car));
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (gzip) {
+            bytes = gzip(bytes);
+        }
+        CHUNK.stop(start);
+        return bytes;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed, GZIP_BUFFER_SIZE)) {
+            gzipStream.write(bytes);
+        } catch (IOException e) {
+            throw new ExportException(e.getMessage());
+        }
+        return compressed.toByteArray();
+    }
+
+    // serialized chunk is the write buffer, so it is written with as few calls as channel allows
+    private static void write(FileChannel channel, CompletableFuture<byte[]> chunk) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk.join());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        BYTES.add(buffer.capacity());
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // file which cannot be deleted is overwritten by next export
+        }
+    }
+}
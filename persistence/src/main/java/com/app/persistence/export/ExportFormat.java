@@ -0,0 +1,74 @@
+package com.app.persistence.export;
+
+import com.app.persistence.model.Car;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.Set;
+
+// line formats of exported cars, every car is written as one line
+// JSON_LINES: one compact json object per line, the same fields as in json file of cars
+// CSV: header line, then model, price, color, mileage and components separated by semicolons
+public enum ExportFormat {
+
+    JSON_LINES(".jsonl") {
+        @Override
+        void appendHeader(StringBuilder sb) {
+        }
+
+        @Override
+        void appendCar(StringBuilder sb, Car car) {
+            GSON.toJson(car, sb);
+            sb.append('\n');
+        }
+    },
+
+    CSV(".csv") {
+        @Override
+        void appendHeader(StringBuilder sb) {
+            sb.append("model,price,color,mileage,components\n");
+        }
+
+        @Override
+        void appendCar(StringBuilder sb, Car car) {
+            appendField(sb, car.getModel());
+            sb.append(',');
+            appendField(sb, car.getPrice() == null ? null : car.getPrice().toPlainString());
+            sb.append(',');
+            appendField(sb, car.getColor() == null ? null : car.getColor().name());
+            sb.append(',').append(car.getMileage()).append(',');
+            Set<String> components = car.getComponents();
+            appendField(sb, components == null ? null : String.join(";", components));
+            sb.append('\n');
+        }
+    };
+
+    // gson is thread safe, so chunks are serialized with the same instance
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    abstract void appendHeader(StringBuilder sb);
+
+    abstract void appendCar(StringBuilder sb, Car car);
+
+    // missing value is empty field, value with separator, quote or line break is quoted as in RFC 4180
+    private static void appendField(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            sb.append(value);
+            return;
+        }
+        sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
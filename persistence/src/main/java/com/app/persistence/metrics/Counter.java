@@ -0,0 +1,32 @@
+package com.app.persistence.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// counter updated by many threads, it is not changed while metrics are disabled
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        if (Metrics.isEnabled()) {
+            value.increment();
+        }
+    }
+
+    public void add(long amount) {
+        if (Metrics.isEnabled()) {
+            value.add(amount);
+        }
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    void reset() {
+        value.reset();
+    }
+}
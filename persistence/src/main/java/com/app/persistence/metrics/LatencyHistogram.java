@@ -0,0 +1,92 @@
+package com.app.persistence.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// histogram of latencies in nanoseconds with four buckets for every power of two,
+// so recording is a few additions and memory does not grow with number of recorded values
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 256;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    // start is value returned by Metrics.start()
+    public void stop(long start) {
+        if (start != Metrics.DISABLED) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[bucket(value)].increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        long max = maxNanos.get();
+        // percentiles are upper bounds of buckets, so they are never smaller than real ones but can pass the maximum
+        return new LatencySnapshot(
+                total,
+                total == 0 ? 0.0 : totalNanos.sum() / 1_000.0 / total,
+                Math.min(percentile(counts, total, 0.50), max) / 1_000.0,
+                Math.min(percentile(counts, total, 0.99), max) / 1_000.0,
+                max / 1_000.0);
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    private static long percentile(long[] counts, long total, double percentile) {
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    // values below 4 have own buckets, bigger ones are split by exponent and two next bits
+    static int bucket(long nanos) {
+        if (nanos < 4) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int mantissa = (int) (nanos >>> (exponent - 2)) & 3;
+        return exponent * 4 + mantissa;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        int exponent = bucket / 4;
+        int mantissa = bucket % 4;
+        long bound = (long) (4 + mantissa + 1) << (exponent - 2);
+        return bound <= 0 ? Long.MAX_VALUE : bound - 1;
+    }
+}
@@ -0,0 +1,30 @@
+package com.app.persistence.metrics;
+
+import lombok.Value;
+
+import java.beans.ConstructorProperties;
+
+// latencies in microseconds, percentiles are upper bounds of histogram buckets, so they are at most 25% too big
+@Value
+public class LatencySnapshot {
+    long count;
+    double meanMicros;
+    double p50Micros;
+    double p99Micros;
+    double maxMicros;
+
+    @ConstructorProperties({"count", "meanMicros", "p50Micros", "p99Micros", "maxMicros"})
+    public LatencySnapshot(long count, double meanMicros, double p50Micros, double p99Micros, double maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count: %d, mean: %.1f us, p50: %.1f us, p99: %.1f us, max: %.1f us",
+                count, meanMicros, p50Micros, p99Micros, maxMicros);
+    }
+}
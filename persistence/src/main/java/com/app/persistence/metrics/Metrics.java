@@ -0,0 +1,163 @@
+package com.app.persistence.metrics;
+
+import com.app.persistence.exception.MetricsException;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// registry of counters, latency histograms and gauges, shared by all modules
+// metrics are disabled unless -Dcars.metrics=true is given or they are enabled through JMX or menu;
+// while disabled, instrumented code only reads one volatile flag: start() does not read clock
+// and counters are not updated
+public final class Metrics {
+
+    public static final long DISABLED = Long.MIN_VALUE;
+    public static final String MBEAN_NAME = "com.app:type=Metrics";
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> LATENCIES = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<? extends Number>> GAUGES = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = Boolean.getBoolean("cars.metrics");
+
+    static {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("jvm.heap.used.bytes", () -> memory.getHeapMemoryUsage().getUsed());
+        gauge("jvm.heap.committed.bytes", () -> memory.getHeapMemoryUsage().getCommitted());
+        gauge("jvm.heap.max.bytes", () -> memory.getHeapMemoryUsage().getMax());
+        gauge("jvm.gc.count", () -> ManagementFactory.getGarbageCollectorMXBeans()
+                .stream()
+                .mapToLong(gc -> Math.max(gc.getCollectionCount(), 0))
+                .sum());
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static LatencyHistogram latency(String name) {
+        return LATENCIES.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    // gauge is read only when metrics are reported, gauge registered again under the same name replaces old one
+    public static void gauge(String name, Supplier<? extends Number> value) {
+        GAUGES.put(name, value);
+    }
+
+    // start of timed section, DISABLED when metrics are disabled
+    public static long start() {
+        return enabled ? System.nanoTime() : DISABLED;
+    }
+
+    // histogram is looked up only when section was timed
+    public static void stop(String latencyName, long start) {
+        if (start != DISABLED) {
+            latency(latencyName).record(System.nanoTime() - start);
+        }
+    }
+
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        LATENCIES.values().forEach(LatencyHistogram::reset);
+    }
+
+    public static Map<String, Long> counters() {
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.get()));
+        return counters;
+    }
+
+    public static Map<String, Double> gauges() {
+        Map<String, Double> gauges = new TreeMap<>();
+        GAUGES.forEach((name, gauge) -> {
+            Number value = gauge.get();
+            gauges.put(name, value == null ? Double.NaN : value.doubleValue());
+        });
+        return gauges;
+    }
+
+    public static Map<String, LatencySnapshot> latencies() {
+        Map<String, LatencySnapshot> latencies = new TreeMap<>();
+        LATENCIES.forEach((name, histogram) -> latencies.put(name, histogram.snapshot()));
+        return latencies;
+    }
+
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Metrics are ").append(enabled ? "enabled" : "disabled").append("\n");
+        sb.append("Counters:\n");
+        counters().forEach((name, value) -> sb.append("  ").append(name).append(": ").append(value).append("\n"));
+        sb.append("Gauges:\n");
+        gauges().forEach((name, value) -> sb.append("  ").append(name).append(": ")
+                .append(value % 1 == 0 ? String.valueOf(value.longValue()) : String.format("%.3f", value)).append("\n"));
+        sb.append("Latencies:\n");
+        latencies().forEach((name, value) -> sb.append("  ").append(name).append(": ").append(value).append("\n"));
+        return sb.toString();
+    }
+
+    // registering more than once does nothing
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsView(), new ObjectName(MBEAN_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (Exception e) {
+            throw new MetricsException(e.getMessage());
+        }
+    }
+
+    private static final class MetricsView implements MetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return counters();
+        }
+
+        @Override
+        public Map<String, Double> getGauges() {
+            return gauges();
+        }
+
+        @Override
+        public Map<String, LatencySnapshot> getLatencies() {
+            return latencies();
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.app.persistence.metrics;
+
+import java.util.Map;
+
+// metrics of application seen through JMX, registered as com.app:type=Metrics
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+
+    Map<String, Long> getCounters();
+
+    Map<String, Double> getGauges();
+
+    Map<String, LatencySnapshot> getLatencies();
+
+    String getReport();
+}
@@ -1,22 +1,77 @@
 package com.app.persistence.model;
 
 import com.app.persistence.enums.Color;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 import java.util.Set;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-@Builder
-public class Car {
-    private String model;
-    private BigDecimal price;
-    private Color color;
-    private double mileage;
-    private Set<String> components;
+// immutable car, changed car is a new object made with toBuilder, so cars can be shared by snapshots, indexes,
+// caches and statistics, and returned by queries without copying
+// cars are equal when all their fields are equal, hash of all fields is computed on first use and kept
+// components are kept in immutable set, json reader sets fields after private constructor
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE, force = true)
+public final class Car {
+    private final String model;
+    private final BigDecimal price;
+    private final Color color;
+    private final double mileage;
+    private final Set<String> components;
+    // 0 when hash is not computed yet, transient fields are not written to json
+    @Getter(AccessLevel.NONE)
+    private transient int hash;
+
+    @Builder(toBuilder = true)
+    public Car(String model, BigDecimal price, Color color, double mileage, Set<String> components) {
+        this.model = model;
+        this.price = price;
+        this.color = color;
+        this.mileage = mileage;
+        this.components = components == null || components instanceof ComponentSet
+                ? components
+                : Collections.unmodifiableSet(new LinkedHashSet<>(components));
+    }
+
+    // cars with different computed hashes are not compared field by field
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Car)) {
+            return false;
+        }
+        Car other = (Car) o;
+        if (hash != 0 && other.hash != 0 && hash != other.hash) {
+            return false;
+        }
+        return Double.compare(mileage, other.mileage) == 0
+                && color == other.color
+                && Objects.equals(model, other.model)
+                && Objects.equals(price, other.price)
+                && Objects.equals(components, other.components);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(model, price, color, mileage, components);
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "Car(model=" + model + ", price=" + price + ", color=" + color
+                + ", mileage=" + mileage + ", components=" + components + ")";
+    }
 }
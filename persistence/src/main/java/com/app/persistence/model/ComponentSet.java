@@ -0,0 +1,97 @@
+package com.app.persistence.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// immutable set of components backed by array, components keep order in which they were given
+// cars have only a few components, so linear search is cheaper than hashing and takes much less memory
+// canonical sets are shared by many cars, hash code is computed once and identical sets are equal without visiting elements
+public final class ComponentSet extends AbstractSet<String> {
+
+    private final String[] components;
+    private final int hashCode;
+
+    private ComponentSet(String[] components) {
+        this.components = components;
+        this.hashCode = Arrays.stream(components).mapToInt(String::hashCode).sum();
+    }
+
+    // duplicates are dropped, first occurrence decides order, like in set of cars loaded from json
+    public static ComponentSet of(Collection<String> components) {
+        if (components instanceof ComponentSet) {
+            return (ComponentSet) components;
+        }
+        String[] distinctComponents = new LinkedHashSet<>(components).toArray(new String[0]);
+        for (String component : distinctComponents) {
+            Objects.requireNonNull(component, "component is null");
+        }
+        return new ComponentSet(distinctComponents);
+    }
+
+    @Override
+    public boolean contains(Object component) {
+        for (String value : components) {
+            if (value == component) {
+                return true;
+            }
+        }
+        for (String value : components) {
+            if (value.equals(component)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < components.length;
+            }
+
+            @Override
+            public String next() {
+                if (next == components.length) {
+                    throw new NoSuchElementException();
+                }
+                return components[next++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return components.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other instanceof ComponentSet) {
+            ComponentSet otherSet = (ComponentSet) other;
+            return hashCode == otherSet.hashCode && components.length == otherSet.components.length && containsAll(otherSet);
+        }
+        return super.equals(other);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(components, components.length, Object[].class);
+    }
+}
@@ -0,0 +1,29 @@
+package com.app.persistence.store;
+
+import com.app.persistence.model.Car;
+import lombok.Value;
+
+// one record of change log, car is null for deletes
+@Value
+public class CarChange {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    Type type;
+    int carId;
+    Car car;
+
+    public static CarChange insert(int carId, Car car) {
+        return new CarChange(Type.INSERT, carId, car);
+    }
+
+    public static CarChange update(int carId, Car car) {
+        return new CarChange(Type.UPDATE, carId, car);
+    }
+
+    public static CarChange delete(int carId) {
+        return new CarChange(Type.DELETE, carId, null);
+    }
+}
@@ -0,0 +1,313 @@
+package com.app.persistence.store;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.exception.CarStoreException;
+import com.app.persistence.model.Car;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// append-only log of changes made to cars after snapshot was written
+//
+// header: magic, version, stamp of snapshot which log extends
+// record: payload length, crc32 of payload, payload: type, car id, then for inserts and updates
+// model, price (scale and unscaled value bytes), color ordinal, mileage, components
+//
+// records are written at the end of file and forced to disk once per syncEvery records,
+// so after power failure at most syncEvery - 1 last records can be lost.
+// Record which was written only partially is detected by its length and crc and cut off during recovery.
+// Log is replaced only by reset, so it is never dropped during recovery: log of other snapshot is an error,
+// unless the snapshot was compacted from it and has its changes already.
+public class CarChangeLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x4341524c;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final Path logPath;
+    private final int syncEvery;
+    private FileChannel channel;
+    private long snapshotStamp;
+    private long records;
+    private int unsyncedRecords;
+
+    public CarChangeLog(String logFilename, int syncEvery) {
+        if (syncEvery <= 0) {
+            throw new CarStoreException("SYNC EVERY VALUE IS NOT CORRECT: " + syncEvery);
+        }
+        this.logPath = Path.of(logFilename);
+        this.syncEvery = syncEvery;
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(logPath);
+    }
+
+    // changes logged after snapshot with given stamp, in order they were made, log is opened for appending
+    // after last valid record; base stamp is stamp of snapshot which given one was compacted from, and its log
+    // is replaced by empty one, because compaction stopped before it reset the log
+    public List<CarChange> recover(long snapshotStamp, long baseStamp) {
+        close();
+        List<CarChange> changes = new ArrayList<>();
+        if (!exists()) {
+            throw new CarStoreException("CHANGE LOG IS MISSING: " + logPath);
+        }
+        try {
+            FileChannel logChannel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = readFully(logChannel, 0, HEADER_SIZE);
+            if (header == null || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                logChannel.close();
+                throw new CarStoreException("CHANGE LOG IS CORRUPTED: " + logPath);
+            }
+            long logStamp = header.getLong();
+            if (logStamp != snapshotStamp) {
+                logChannel.close();
+                if (baseStamp == 0 || logStamp != baseStamp) {
+                    throw new CarStoreException("CHANGE LOG DOES NOT EXTEND SNAPSHOT: " + logPath);
+                }
+                reset(snapshotStamp);
+                return changes;
+            }
+            long position = HEADER_SIZE;
+            while (true) {
+                ByteBuffer recordHeader = readFully(logChannel, position, RECORD_HEADER_SIZE);
+                if (recordHeader == null) {
+                    break;
+                }
+                int length = recordHeader.getInt();
+                int expectedCrc = recordHeader.getInt();
+                if (length <= 0 || length > logChannel.size() - position - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                ByteBuffer payload = readFully(logChannel, position + RECORD_HEADER_SIZE, length);
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                changes.add(decode(payload));
+                position += RECORD_HEADER_SIZE + length;
+            }
+            // torn or corrupted tail is cut off, so next records are appended after last valid one
+            logChannel.truncate(position);
+            logChannel.position(position);
+            logChannel.force(true);
+            this.channel = logChannel;
+            this.snapshotStamp = snapshotStamp;
+            this.records = changes.size();
+            this.unsyncedRecords = 0;
+            return changes;
+        } catch (IOException e) {
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    // empty log extending snapshot with given stamp replaces current one, used after compaction
+    // new log is written to temporary file first and then moved, so there is always complete log on disk
+    public void reset(long snapshotStamp) {
+        close();
+        Path temporaryPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try {
+            try (FileChannel temporaryChannel = FileChannel.open(temporaryPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(snapshotStamp)
+                        .flip();
+                while (header.hasRemaining()) {
+                    temporaryChannel.write(header);
+                }
+                temporaryChannel.force(true);
+            }
+            Files.move(temporaryPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.channel = FileChannel.open(logPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.snapshotStamp = snapshotStamp;
+            this.records = 0;
+            this.unsyncedRecords = 0;
+        } catch (IOException e) {
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    // all changes are written with one write call, log is forced to disk when enough records are pending
+    public void append(Collection<CarChange> changes) {
+        if (changes == null) {
+            throw new CarStoreException("CHANGES COLLECTION IS NULL");
+        }
+        if (channel == null) {
+            throw new CarStoreException("CHANGE LOG IS NOT OPEN");
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        long logSize = -1;
+        try {
+            logSize = channel.size();
+            var bytes = new ByteArrayOutputStream();
+            var output = new DataOutputStream(bytes);
+            for (CarChange change : changes) {
+                byte[] payload = encode(change);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                output.writeInt(payload.length);
+                output.writeInt((int) crc.getValue());
+                output.write(payload);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            records += changes.size();
+            unsyncedRecords += changes.size();
+            if (unsyncedRecords >= syncEvery) {
+                sync();
+            }
+        } catch (IOException e) {
+            // partially written records are cut off, so records appended later are not lost behind them
+            truncate(logSize);
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    private void truncate(long logSize) {
+        if (logSize < 0) {
+            return;
+        }
+        try {
+            channel.truncate(logSize);
+        } catch (IOException e) {
+            // recovery cuts log off at first corrupted record
+        }
+    }
+
+    public void sync() {
+        if (channel == null || unsyncedRecords == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsyncedRecords = 0;
+        } catch (IOException e) {
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    // stamp of snapshot which log extends
+    public long snapshotStamp() {
+        return snapshotStamp;
+    }
+
+    // number of records in log, which are replayed during recovery
+    public long records() {
+        return records;
+    }
+
+    @Override
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            sync();
+            channel.close();
+        } catch (IOException e) {
+            throw new CarStoreException(e.getMessage());
+        } finally {
+            channel = null;
+        }
+    }
+
+    // null when file ends before length bytes
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] encode(CarChange change) throws IOException {
+        if (change == null || change.getType() == null) {
+            throw new CarStoreException("CHANGE IS NOT CORRECT");
+        }
+        var bytes = new ByteArrayOutputStream();
+        var payload = new DataOutputStream(bytes);
+        payload.writeByte(change.getType().ordinal());
+        payload.writeInt(change.getCarId());
+        if (change.getType() != CarChange.Type.DELETE) {
+            Car car = change.getCar();
+            writeString(payload, car.getModel());
+            byte[] unscaledPrice = car.getPrice().unscaledValue().toByteArray();
+            payload.writeInt(car.getPrice().scale());
+            payload.writeInt(unscaledPrice.length);
+            payload.write(unscaledPrice);
+            payload.writeByte(car.getColor().ordinal());
+            payload.writeDouble(car.getMileage());
+            payload.writeInt(car.getComponents().size());
+            for (String component : car.getComponents()) {
+                writeString(payload, component);
+            }
+        }
+        payload.flush();
+        return bytes.toByteArray();
+    }
+
+    private static CarChange decode(ByteBuffer payload) {
+        CarChange.Type type = CarChange.Type.values()[payload.get()];
+        int carId = payload.getInt();
+        if (type == CarChange.Type.DELETE) {
+            return CarChange.delete(carId);
+        }
+        String model = readString(payload);
+        int priceScale = payload.getInt();
+        byte[] unscaledPrice = new byte[payload.getInt()];
+        payload.get(unscaledPrice);
+        Color color = Color.values()[payload.get()];
+        double mileage = payload.getDouble();
+        int componentsCount = payload.getInt();
+        Set<String> components = new LinkedHashSet<>();
+        for (int i = 0; i < componentsCount; i++) {
+            components.add(readString(payload));
+        }
+        Car car = Car.builder()
+                .model(model)
+                .price(new BigDecimal(new BigInteger(unscaledPrice), priceScale))
+                .color(color)
+                .mileage(mileage)
+                .components(components)
+                .build();
+        return type == CarChange.Type.INSERT ? CarChange.insert(carId, car) : CarChange.update(carId, car);
+    }
+
+    private static void writeString(DataOutputStream payload, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.writeInt(bytes.length);
+        payload.write(bytes);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,108 @@
+package com.app.persistence.store;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// column oriented, read-only access to cars, every car is a row
+// price is kept as long cents for comparisons and exactly as unscaled value and scale, so cars come back
+// with the same prices they were stored with, color is kept as ordinal, model and components as ids of string dictionaries
+public interface CarColumns {
+
+    Color[] COLORS = Color.values();
+    // scale of price whose unscaled value does not fit in long, such price is known only in cents
+    int INEXACT_PRICE_SCALE = Integer.MIN_VALUE;
+
+    int size();
+
+    long priceCents(int row);
+
+    long priceUnscaledValue(int row);
+
+    int priceScale(int row);
+
+    double mileage(int row);
+
+    int colorOrdinal(int row);
+
+    int modelId(int row);
+
+    int componentsCount(int row);
+
+    int componentId(int row, int position);
+
+    StringDictionary getModelDictionary();
+
+    StringDictionary getComponentDictionary();
+
+    default BigDecimal price(int row) {
+        int scale = priceScale(row);
+        return scale == INEXACT_PRICE_SCALE
+                ? ColumnarCarStore.toPrice(priceCents(row))
+                : BigDecimal.valueOf(priceUnscaledValue(row), scale);
+    }
+
+    // price of row is known exactly in cents when it has at most two decimal places
+    default boolean hasWholeCentsPrice(int row) {
+        int scale = priceScale(row);
+        return scale != INEXACT_PRICE_SCALE && scale <= 2;
+    }
+
+    // cents are rounded half up, which keeps order of prices, so rows with different cents are ordered by cents
+    // and exact prices are compared only when cents are equal
+    default int comparePrices(int row1, int row2) {
+        int byCents = Long.compare(priceCents(row1), priceCents(row2));
+        if (byCents != 0 || hasWholeCentsPrice(row1) && hasWholeCentsPrice(row2)) {
+            return byCents;
+        }
+        return price(row1).compareTo(price(row2));
+    }
+
+    // price of row compared with given price, whose cents rounded half up are given as well
+    default int comparePrice(int row, BigDecimal price, long priceCents) {
+        int byCents = Long.compare(priceCents(row), priceCents);
+        if (byCents != 0) {
+            return byCents;
+        }
+        return price(row).compareTo(price);
+    }
+
+    default Color color(int row) {
+        return COLORS[colorOrdinal(row)];
+    }
+
+    default String model(int row) {
+        return getModelDictionary().decode(modelId(row));
+    }
+
+    default boolean hasComponent(int row, int componentId) {
+        for (int position = 0; position < componentsCount(row); position++) {
+            if (componentId(row, position) == componentId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    default Set<String> components(int row) {
+        Set<String> components = new LinkedHashSet<>();
+        for (int position = 0; position < componentsCount(row); position++) {
+            components.add(getComponentDictionary().decode(componentId(row, position)));
+        }
+        return components;
+    }
+
+    // car object is created on every call, only for rows which are really needed
+    default Car car(int row) {
+        return Car.builder()
+                .model(model(row))
+                .price(price(row))
+                .color(color(row))
+                .mileage(mileage(row))
+                .components(components(row))
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.app.persistence.store;
+
+import com.app.persistence.model.Car;
+import com.app.persistence.model.ComponentSet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// symbol table of models and components, and of component sets made of them
+// every car loaded through the same interner shares one String per model and component
+// and one immutable ComponentSet per distinct list of components, so the same few hundred values
+// are kept once instead of once per car; interner can be used by many loading threads at once
+public final class CarInterner {
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    // key is list of components in order, sets with the same components in other order are not shared
+    private final Map<List<String>, ComponentSet> componentSets = new ConcurrentHashMap<>();
+
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = strings.putIfAbsent(value, value);
+        return canonical == null ? value : canonical;
+    }
+
+    public ComponentSet components(Collection<String> components) {
+        String[] interned = new String[components.size()];
+        int i = 0;
+        for (String component : components) {
+            interned[i++] = intern(component);
+        }
+        List<String> key = Arrays.asList(interned);
+        ComponentSet canonical = componentSets.get(key);
+        if (canonical == null) {
+            ComponentSet created = ComponentSet.of(key);
+            canonical = componentSets.putIfAbsent(List.copyOf(created), created);
+            canonical = canonical == null ? created : canonical;
+        }
+        return canonical;
+    }
+
+    // copy of car with canonical model and components, car given is not changed
+    public Car canonical(Car car) {
+        return Car.builder()
+                .model(intern(car.getModel()))
+                .price(car.getPrice())
+                .color(car.getColor())
+                .mileage(car.getMileage())
+                .components(car.getComponents() == null ? null : components(car.getComponents()))
+                .build();
+    }
+
+    // number of distinct models and components
+    public int strings() {
+        return strings.size();
+    }
+
+    public int componentSets() {
+        return componentSets.size();
+    }
+}
@@ -0,0 +1,316 @@
+package com.app.persistence.store;
+
+import com.app.persistence.exception.CarStoreException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// binary snapshot of ColumnarCarStore, made from a validated source json file
+//
+// header: magic, version, source mtime, source size, stamp, base stamp, body length, crc32 of body
+// body: model and component dictionaries (count, then length prefixed utf-8 strings),
+// then length prefixed columns: price cents, price unscaled values, price scales, mileages, colors, model ids,
+// component offsets, component ids
+//
+// snapshot keeps prices exactly, store with price which can not be kept exactly is not written
+// snapshot is valid only when it is not corrupted and source file has the same mtime and size
+// as the one snapshot was made from. Whole file is mapped at once, so it has to be smaller than 2GB.
+// Stamp is random and different for every written snapshot, change log keeps stamp of snapshot it extends.
+// Base stamp is stamp of snapshot this one was compacted from, 0 when there is none.
+//
+// Snapshot without source file is not a copy of other file but the only copy of its cars, so it does not go
+// out of date and reading it when it is corrupted is an error, not a missing snapshot.
+public class CarStoreSnapshot {
+
+    private static final int MAGIC = 0x43415253;
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 6 * Long.BYTES;
+    private static final int STAMP_OFFSET = 2 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int BASE_STAMP_OFFSET = STAMP_OFFSET + Long.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Path snapshotPath;
+    // null for snapshot without source file
+    private final Path sourcePath;
+
+    public CarStoreSnapshot(String snapshotFilename, String sourceFilename) {
+        this.snapshotPath = Path.of(snapshotFilename);
+        this.sourcePath = Path.of(sourceFilename);
+    }
+
+    public CarStoreSnapshot(String snapshotFilename) {
+        this.snapshotPath = Path.of(snapshotFilename);
+        this.sourcePath = null;
+    }
+
+    public long write(final ColumnarCarStore store) {
+        return write(store, 0);
+    }
+
+    // snapshot is written to temporary file first and then moved, so it is never seen half written
+    // returns stamp of written snapshot
+    public long write(final ColumnarCarStore store, long baseStamp) {
+        if (store == null) {
+            throw new CarStoreException("STORE IS NULL");
+        }
+        if (!store.hasExactPrices()) {
+            throw new CarStoreException("PRICES CANNOT BE WRITTEN EXACTLY");
+        }
+        Path temporaryPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        long stamp = ThreadLocalRandom.current().nextLong();
+        try (FileChannel channel = FileChannel.open(temporaryPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long sourceMtime = sourcePath == null ? 0 : Files.getLastModifiedTime(sourcePath).toMillis();
+            long sourceSize = sourcePath == null ? 0 : Files.size(sourcePath);
+
+            CRC32 crc = new CRC32();
+            channel.position(HEADER_SIZE);
+            var countingStream = new CheckedOutputStream(Channels.newOutputStream(channel), crc);
+            var body = new DataOutputStream(new BufferedOutputStream(countingStream, WRITE_BUFFER_SIZE));
+            writeDictionary(body, store.getModelDictionary());
+            writeDictionary(body, store.getComponentDictionary());
+            writeColumn(body, store.priceCentsColumn());
+            writeColumn(body, store.priceUnscaledValuesColumn());
+            writeColumn(body, store.priceScalesColumn());
+            writeColumn(body, store.mileagesColumn());
+            writeColumn(body, store.colorsColumn());
+            writeColumn(body, store.modelIdsColumn());
+            writeColumn(body, store.componentOffsetsColumn());
+            writeColumn(body, store.componentIdsColumn());
+            body.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(sourceMtime)
+                    .putLong(sourceSize)
+                    .putLong(stamp)
+                    .putLong(baseStamp)
+                    .putLong(body.size())
+                    .putLong(crc.getValue())
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (Exception e) {
+            throw new CarStoreException(e.getMessage());
+        }
+        try {
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new CarStoreException(e.getMessage());
+        }
+        return stamp;
+    }
+
+    // empty when there is no snapshot or it is corrupted or out of date
+    // snapshot without source file is empty only when there is no snapshot
+    public Optional<ColumnarCarStore> read() {
+        return map(true).map(CarStoreSnapshot::decode);
+    }
+
+    // columns are not copied to heap, they are decoded lazily from mapped file, so pages of file are read
+    // only when they are touched; crc of body is not checked, because it would read the whole file at once,
+    // only header, length of body and stamp of source file are checked
+    // empty when there is no snapshot or it is out of date
+    public Optional<MappedCarStore> readMapped() {
+        return map(false).map(MappedCarStore::new);
+    }
+
+    // mapped body of the snapshot, verified by crc when asked, empty when there is no valid snapshot
+    private Optional<ByteBuffer> map(boolean verifyBody) {
+        if (!exists()) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                return corrupted();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt() != MAGIC) {
+                return corrupted();
+            }
+            if (buffer.getInt() != VERSION) {
+                return otherVersion();
+            }
+            if (!isUpToDate(buffer.getLong(), buffer.getLong())) {
+                return Optional.empty();
+            }
+            buffer.getLong();
+            buffer.getLong();
+            if (buffer.getLong() != fileSize - HEADER_SIZE) {
+                return corrupted();
+            }
+            long expectedCrc = buffer.getLong();
+            ByteBuffer body = buffer.slice();
+            if (!verifyBody) {
+                return Optional.of(body);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            return crc.getValue() == expectedCrc ? Optional.of(body) : corrupted();
+        } catch (CarStoreException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    // stamp of snapshot, empty when there is no snapshot or it is out of date
+    // only header is checked, body is verified when snapshot is read
+    public OptionalLong readStamp() {
+        return readHeader().map(header -> OptionalLong.of(header.getLong(STAMP_OFFSET))).orElse(OptionalLong.empty());
+    }
+
+    // stamp of snapshot this one was compacted from, 0 when there is none, empty like readStamp()
+    public OptionalLong readBaseStamp() {
+        return readHeader().map(header -> OptionalLong.of(header.getLong(BASE_STAMP_OFFSET))).orElse(OptionalLong.empty());
+    }
+
+    private Optional<ByteBuffer> readHeader() {
+        if (!exists()) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // header is read until it is full or file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                return corrupted();
+            }
+            if (header.getInt() != VERSION) {
+                return otherVersion();
+            }
+            return isUpToDate(header.getLong(), header.getLong()) ? Optional.of(header) : Optional.empty();
+        } catch (CarStoreException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    private boolean exists() {
+        return Files.isRegularFile(snapshotPath) && (sourcePath == null || Files.isRegularFile(sourcePath));
+    }
+
+    private boolean isUpToDate(long sourceMtime, long sourceSize) throws IOException {
+        return sourcePath == null
+                || sourceMtime == Files.getLastModifiedTime(sourcePath).toMillis() && sourceSize == Files.size(sourcePath);
+    }
+
+    // snapshot of source file is only written again, snapshot without source file cannot be replaced
+    private <T> Optional<T> corrupted() {
+        if (sourcePath == null) {
+            throw new CarStoreException("SNAPSHOT IS CORRUPTED: " + snapshotPath);
+        }
+        return Optional.empty();
+    }
+
+    private <T> Optional<T> otherVersion() {
+        if (sourcePath == null) {
+            throw new CarStoreException("SNAPSHOT VERSION IS NOT SUPPORTED: " + snapshotPath);
+        }
+        return Optional.empty();
+    }
+
+    private static ColumnarCarStore decode(ByteBuffer body) {
+        try {
+            var modelDictionary = readDictionary(body);
+            var componentDictionary = readDictionary(body);
+            long[] priceCents = readLongColumn(body);
+            long[] priceUnscaledValues = readLongColumn(body);
+            int[] priceScales = readIntColumn(body);
+            double[] mileages = new double[body.getInt()];
+            body.asDoubleBuffer().get(mileages);
+            body.position(body.position() + mileages.length * Double.BYTES);
+            byte[] colors = new byte[body.getInt()];
+            body.get(colors);
+            int[] modelIds = readIntColumn(body);
+            int[] componentOffsets = readIntColumn(body);
+            int[] componentIds = readIntColumn(body);
+            return new ColumnarCarStore(priceCents, priceUnscaledValues, priceScales, mileages, colors, modelIds,
+                    componentOffsets, componentIds, modelDictionary, componentDictionary);
+        } catch (Exception e) {
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    static StringDictionary readDictionary(ByteBuffer body) {
+        var dictionary = new StringDictionary();
+        int count = body.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] value = new byte[body.getInt()];
+            body.get(value);
+            dictionary.encode(new String(value, StandardCharsets.UTF_8));
+        }
+        return dictionary;
+    }
+
+    private static long[] readLongColumn(ByteBuffer body) {
+        long[] column = new long[body.getInt()];
+        body.asLongBuffer().get(column);
+        body.position(body.position() + column.length * Long.BYTES);
+        return column;
+    }
+
+    private static int[] readIntColumn(ByteBuffer body) {
+        int[] column = new int[body.getInt()];
+        body.asIntBuffer().get(column);
+        body.position(body.position() + column.length * Integer.BYTES);
+        return column;
+    }
+
+    private static void writeDictionary(DataOutputStream body, StringDictionary dictionary) throws IOException {
+        List<String> values = dictionary.values();
+        body.writeInt(values.size());
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            body.writeInt(bytes.length);
+            body.write(bytes);
+        }
+    }
+
+    private static void writeColumn(DataOutputStream body, long[] column) throws IOException {
+        body.writeInt(column.length);
+        for (long value : column) {
+            body.writeLong(value);
+        }
+    }
+
+    private static void writeColumn(DataOutputStream body, double[] column) throws IOException {
+        body.writeInt(column.length);
+        for (double value : column) {
+            body.writeDouble(value);
+        }
+    }
+
+    private static void writeColumn(DataOutputStream body, byte[] column) throws IOException {
+        body.writeInt(column.length);
+        body.write(column);
+    }
+
+    private static void writeColumn(DataOutputStream body, int[] column) throws IOException {
+        body.writeInt(column.length);
+        for (int value : column) {
+            body.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.app.persistence.store;
+
+import com.app.persistence.exception.CarStoreException;
+import com.app.persistence.model.Car;
+import org.eclipse.collections.impl.list.mutable.primitive.ByteArrayList;
+import org.eclipse.collections.impl.list.mutable.primitive.DoubleArrayList;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// read-only column oriented storage of cars kept on heap
+// every car is a row, fields are kept in primitive arrays:
+// price as long cents rounded for fast comparisons, and exactly as unscaled value and scale,
+// mileage as double, color as byte ordinal,
+// model and components as ids of string dictionaries, components of row i are
+// componentIds[componentOffsets[i]] .. componentIds[componentOffsets[i + 1] - 1]
+public final class ColumnarCarStore implements CarColumns {
+
+    private final long[] priceCents;
+    private final long[] priceUnscaledValues;
+    private final int[] priceScales;
+    private final double[] mileages;
+    private final byte[] colors;
+    private final int[] modelIds;
+    private final int[] componentOffsets;
+    private final int[] componentIds;
+    private final StringDictionary modelDictionary;
+    private final StringDictionary componentDictionary;
+
+    private ColumnarCarStore(Builder builder) {
+        this(builder.priceCents.toArray(),
+                builder.priceUnscaledValues.toArray(),
+                builder.priceScales.toArray(),
+                builder.mileages.toArray(),
+                builder.colors.toArray(),
+                builder.modelIds.toArray(),
+                builder.componentOffsets.toArray(),
+                builder.componentIds.toArray(),
+                builder.modelDictionary,
+                builder.componentDictionary);
+    }
+
+    ColumnarCarStore(long[] priceCents, long[] priceUnscaledValues, int[] priceScales, double[] mileages, byte[] colors,
+                     int[] modelIds, int[] componentOffsets, int[] componentIds,
+                     StringDictionary modelDictionary, StringDictionary componentDictionary) {
+        this.priceCents = priceCents;
+        this.priceUnscaledValues = priceUnscaledValues;
+        this.priceScales = priceScales;
+        this.mileages = mileages;
+        this.colors = colors;
+        this.modelIds = modelIds;
+        this.componentOffsets = componentOffsets;
+        this.componentIds = componentIds;
+        this.modelDictionary = modelDictionary;
+        this.componentDictionary = componentDictionary;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public int size() {
+        return priceCents.length;
+    }
+
+    @Override
+    public long priceCents(int row) {
+        return priceCents[row];
+    }
+
+    @Override
+    public long priceUnscaledValue(int row) {
+        return priceUnscaledValues[row];
+    }
+
+    @Override
+    public int priceScale(int row) {
+        return priceScales[row];
+    }
+
+    // false when unscaled value of some price does not fit in long, such store is not written to snapshot
+    public boolean hasExactPrices() {
+        for (int scale : priceScales) {
+            if (scale == INEXACT_PRICE_SCALE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public double mileage(int row) {
+        return mileages[row];
+    }
+
+    @Override
+    public int colorOrdinal(int row) {
+        return colors[row];
+    }
+
+    @Override
+    public int modelId(int row) {
+        return modelIds[row];
+    }
+
+    @Override
+    public int componentsCount(int row) {
+        return componentOffsets[row + 1] - componentOffsets[row];
+    }
+
+    @Override
+    public int componentId(int row, int position) {
+        return componentIds[componentOffsets[row] + position];
+    }
+
+    @Override
+    public StringDictionary getModelDictionary() {
+        return modelDictionary;
+    }
+
+    @Override
+    public StringDictionary getComponentDictionary() {
+        return componentDictionary;
+    }
+
+    // raw columns, used by snapshot writer only
+
+    long[] priceCentsColumn() {
+        return priceCents;
+    }
+
+    long[] priceUnscaledValuesColumn() {
+        return priceUnscaledValues;
+    }
+
+    int[] priceScalesColumn() {
+        return priceScales;
+    }
+
+    double[] mileagesColumn() {
+        return mileages;
+    }
+
+    byte[] colorsColumn() {
+        return colors;
+    }
+
+    int[] modelIdsColumn() {
+        return modelIds;
+    }
+
+    int[] componentOffsetsColumn() {
+        return componentOffsets;
+    }
+
+    int[] componentIdsColumn() {
+        return componentIds;
+    }
+
+    // rounded price, exact one is kept in unscaled value and scale columns
+    public static long toCents(BigDecimal price) {
+        try {
+            return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new CarStoreException("price is out of range: " + price);
+        }
+    }
+
+    public static BigDecimal toPrice(long cents) {
+        return cents % 100 == 0 ? BigDecimal.valueOf(cents / 100) : BigDecimal.valueOf(cents, 2);
+    }
+
+    public static final class Builder {
+
+        private final LongArrayList priceCents = new LongArrayList();
+        private final LongArrayList priceUnscaledValues = new LongArrayList();
+        private final IntArrayList priceScales = new IntArrayList();
+        private final DoubleArrayList mileages = new DoubleArrayList();
+        private final ByteArrayList colors = new ByteArrayList();
+        private final IntArrayList modelIds = new IntArrayList();
+        private final IntArrayList componentOffsets = IntArrayList.newListWith(0);
+        private final IntArrayList componentIds = new IntArrayList();
+        private final StringDictionary modelDictionary = new StringDictionary();
+        private final StringDictionary componentDictionary = new StringDictionary();
+
+        private Builder() {
+        }
+
+        public Builder add(Car car) {
+            if (car == null) {
+                throw new CarStoreException("car is null");
+            }
+            BigDecimal price = car.getPrice();
+            priceCents.add(toCents(price));
+            if (price.unscaledValue().bitLength() < Long.SIZE) {
+                priceUnscaledValues.add(price.unscaledValue().longValue());
+                priceScales.add(price.scale());
+            } else {
+                priceUnscaledValues.add(0);
+                priceScales.add(INEXACT_PRICE_SCALE);
+            }
+            mileages.add(car.getMileage());
+            colors.add((byte) car.getColor().ordinal());
+            modelIds.add(modelDictionary.encode(car.getModel()));
+            for (String component : car.getComponents()) {
+                componentIds.add(componentDictionary.encode(component));
+            }
+            componentOffsets.add(componentIds.size());
+            return this;
+        }
+
+        public ColumnarCarStore build() {
+            return new ColumnarCarStore(this);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.app.persistence.store;
+
+import com.app.persistence.exception.CarStoreException;
+
+import java.nio.ByteBuffer;
+
+// read-only columns read straight from memory mapped snapshot body
+// only dictionaries are decoded on heap, every other value is read from mapped file when it is needed,
+// so working set lives in OS page cache
+public final class MappedCarStore implements CarColumns {
+
+    private final ByteBuffer body;
+    private final int size;
+    private final int priceCentsOffset;
+    private final int priceUnscaledValuesOffset;
+    private final int priceScalesOffset;
+    private final int mileagesOffset;
+    private final int colorsOffset;
+    private final int modelIdsOffset;
+    private final int componentOffsetsOffset;
+    private final int componentIdsOffset;
+    private final StringDictionary modelDictionary;
+    private final StringDictionary componentDictionary;
+
+    // body layout is described in CarStoreSnapshot
+    // body is not verified by crc, so lengths of columns are checked against number of cars and length of body
+    MappedCarStore(ByteBuffer body) {
+        try {
+            this.body = body;
+            ByteBuffer reader = body.duplicate();
+            this.modelDictionary = CarStoreSnapshot.readDictionary(reader);
+            this.componentDictionary = CarStoreSnapshot.readDictionary(reader);
+            this.size = reader.getInt();
+            this.priceCentsOffset = skip(reader, size, Long.BYTES);
+            this.priceUnscaledValuesOffset = skip(reader, column(reader, size), Long.BYTES);
+            this.priceScalesOffset = skip(reader, column(reader, size), Integer.BYTES);
+            this.mileagesOffset = skip(reader, column(reader, size), Double.BYTES);
+            this.colorsOffset = skip(reader, column(reader, size), Byte.BYTES);
+            this.modelIdsOffset = skip(reader, column(reader, size), Integer.BYTES);
+            this.componentOffsetsOffset = skip(reader, column(reader, size + 1), Integer.BYTES);
+            this.componentIdsOffset = skip(reader, reader.getInt(), Integer.BYTES);
+            if (reader.hasRemaining()) {
+                throw new CarStoreException("SNAPSHOT BODY IS NOT CORRECT");
+            }
+        } catch (Exception e) {
+            throw new CarStoreException(e.getMessage());
+        }
+    }
+
+    // length of column which starts at current position, it has to be the expected one
+    private static int column(ByteBuffer reader, int expectedLength) {
+        int length = reader.getInt();
+        if (length != expectedLength) {
+            throw new CarStoreException("SNAPSHOT BODY IS NOT CORRECT");
+        }
+        return length;
+    }
+
+    // offset of column which starts at current position, reader is moved to the end of the column
+    private static int skip(ByteBuffer reader, int length, int elementBytes) {
+        int offset = reader.position();
+        reader.position(offset + length * elementBytes);
+        return offset;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long priceCents(int row) {
+        return body.getLong(priceCentsOffset + row * Long.BYTES);
+    }
+
+    @Override
+    public long priceUnscaledValue(int row) {
+        return body.getLong(priceUnscaledValuesOffset + row * Long.BYTES);
+    }
+
+    @Override
+    public int priceScale(int row) {
+        return body.getInt(priceScalesOffset + row * Integer.BYTES);
+    }
+
+    @Override
+    public double mileage(int row) {
+        return body.getDouble(mileagesOffset + row * Double.BYTES);
+    }
+
+    @Override
+    public int colorOrdinal(int row) {
+        return body.get(colorsOffset + row);
+    }
+
+    @Override
+    public int modelId(int row) {
+        return body.getInt(modelIdsOffset + row * Integer.BYTES);
+    }
+
+    @Override
+    public int componentsCount(int row) {
+        return componentOffset(row + 1) - componentOffset(row);
+    }
+
+    @Override
+    public int componentId(int row, int position) {
+        return body.getInt(componentIdsOffset + (componentOffset(row) + position) * Integer.BYTES);
+    }
+
+    @Override
+    public StringDictionary getModelDictionary() {
+        return modelDictionary;
+    }
+
+    @Override
+    public StringDictionary getComponentDictionary() {
+        return componentDictionary;
+    }
+
+    private int componentOffset(int row) {
+        return body.getInt(componentOffsetsOffset + row * Integer.BYTES);
+    }
+}
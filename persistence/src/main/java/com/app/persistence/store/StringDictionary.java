@@ -0,0 +1,57 @@
+package com.app.persistence.store;
+
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// dictionary encoding of strings, ids are assigned in order of first appearance
+// ids are never given to another string, so copy can be extended while readers use this dictionary
+public final class StringDictionary {
+
+    public static final int NOT_FOUND = -1;
+
+    private final ObjectIntHashMap<String> ids;
+    private final List<String> values;
+
+    public StringDictionary() {
+        this(new ObjectIntHashMap<>(), new ArrayList<>());
+    }
+
+    private StringDictionary(ObjectIntHashMap<String> ids, List<String> values) {
+        this.ids = ids;
+        this.values = values;
+    }
+
+    // strings of copy have the same ids as in this dictionary
+    public StringDictionary copy() {
+        return new StringDictionary(new ObjectIntHashMap<>(ids), new ArrayList<>(values));
+    }
+
+    public int encode(String value) {
+        int id = ids.getIfAbsent(value, NOT_FOUND);
+        if (id == NOT_FOUND) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    public int find(String value) {
+        return ids.getIfAbsent(value, NOT_FOUND);
+    }
+
+    public String decode(int id) {
+        return values.get(id);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public List<String> values() {
+        return Collections.unmodifiableList(values);
+    }
+}
@@ -0,0 +1,18 @@
+package com.app.service.cache;
+
+import lombok.Value;
+
+@Value
+public class CacheStats {
+    long hits;
+    long misses;
+    long evictions;
+    long invalidations;
+    int entries;
+    long weight;
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,153 @@
+package com.app.service.cache;
+
+import com.app.service.exception.CarsServiceException;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+// bounded cache of query results computed from one version of cars
+// results are kept in least recently used order, the oldest ones are evicted when there are too many entries
+// or when they hold too many elements together; weight of result is number of elements of its collections
+// all entries are dropped when result of newer version is requested, results of older versions are not cached
+// results are computed outside of lock, so two threads missing the same key can both compute it
+public final class QueryCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_WEIGHT = 4_000_000;
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version = -1;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    // cache of 0 entries or of weight 0 keeps no result, every query is computed
+    public QueryCache(int maxEntries, long maxWeight) {
+        if (maxEntries < 0 || maxWeight < 0) {
+            throw new CarsServiceException("cache size is not correct: " + maxEntries + ", " + maxWeight);
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    public QueryCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    // result has to be immutable, it is shared by all callers asking for the same key
+    @SuppressWarnings("unchecked")
+    public <T> T get(long dataVersion, String method, List<?> arguments, Supplier<T> query) {
+        Key key = new Key(method, arguments);
+        synchronized (this) {
+            invalidateBefore(dataVersion);
+            Entry entry = dataVersion == version ? entries.get(key) : null;
+            if (entry != null) {
+                hits++;
+                return (T) entry.result;
+            }
+            misses++;
+        }
+        T result = query.get();
+        long resultWeight = weigh(result);
+        synchronized (this) {
+            if (dataVersion == version && resultWeight <= maxWeight) {
+                Entry previous = entries.put(key, new Entry(result, resultWeight));
+                weight += resultWeight - (previous == null ? 0 : previous.weight);
+                evict();
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        if (!entries.isEmpty()) {
+            invalidations++;
+        }
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, invalidations, entries.size(), weight);
+    }
+
+    private void invalidateBefore(long dataVersion) {
+        if (dataVersion > version) {
+            clear();
+            version = dataVersion;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long weigh(Object result) {
+        if (result instanceof Collection) {
+            return Math.max(1, ((Collection<?>) result).size());
+        }
+        if (result instanceof Map) {
+            long mapWeight = 1;
+            for (Object value : ((Map<?, ?>) result).values()) {
+                mapWeight += weigh(value);
+            }
+            return mapWeight;
+        }
+        return 1;
+    }
+
+    private static final class Key {
+
+        private final String method;
+        private final List<?> arguments;
+        private final int hashCode;
+
+        private Key(String method, List<?> arguments) {
+            this.method = method;
+            this.arguments = arguments;
+            this.hashCode = Objects.hash(method, arguments);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            return method.equals(otherKey.method) && arguments.equals(otherKey.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object result;
+        private final long weight;
+
+        private Entry(Object result, long weight) {
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+}
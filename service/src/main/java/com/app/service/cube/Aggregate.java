@@ -0,0 +1,70 @@
+package com.app.service.cube;
+
+import com.app.persistence.model.Car;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+// count, sums and extremes of prices and mileages of group of cars, aggregates of groups are added together
+// when groups are rolled up; aggregate is immutable
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Aggregate {
+
+    static final Aggregate EMPTY = new Aggregate(0, BigDecimal.ZERO, null, null, 0.0, Double.NaN, Double.NaN);
+
+    long count;
+    BigDecimal priceSum;
+    BigDecimal minPrice;
+    BigDecimal maxPrice;
+    double mileageSum;
+    double minMileage;
+    double maxMileage;
+
+    static Aggregate of(Car car) {
+        return new Aggregate(1, car.getPrice(), car.getPrice(), car.getPrice(),
+                car.getMileage(), car.getMileage(), car.getMileage());
+    }
+
+    Aggregate plus(Aggregate other) {
+        if (count == 0) {
+            return other;
+        }
+        if (other.count == 0) {
+            return this;
+        }
+        return new Aggregate(
+                count + other.count,
+                priceSum.add(other.priceSum),
+                minPrice.compareTo(other.minPrice) <= 0 ? minPrice : other.minPrice,
+                maxPrice.compareTo(other.maxPrice) >= 0 ? maxPrice : other.maxPrice,
+                mileageSum + other.mileageSum,
+                Math.min(minMileage, other.minMileage),
+                Math.max(maxMileage, other.maxMileage));
+    }
+
+    // extremes are kept, caller checks with isExtreme whether they have to be computed again
+    Aggregate minus(Car car) {
+        if (count == 1) {
+            return EMPTY;
+        }
+        return new Aggregate(count - 1, priceSum.subtract(car.getPrice()), minPrice, maxPrice,
+                mileageSum - car.getMileage(), minMileage, maxMileage);
+    }
+
+    boolean isExtreme(Car car) {
+        return car.getPrice().compareTo(minPrice) == 0 || car.getPrice().compareTo(maxPrice) == 0
+                || car.getMileage() == minMileage || car.getMileage() == maxMileage;
+    }
+
+    public BigDecimal getAveragePrice() {
+        return count == 0 ? null : priceSum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+    }
+
+    public double getAverageMileage() {
+        return count == 0 ? 0.0 : mileageSum / count;
+    }
+}
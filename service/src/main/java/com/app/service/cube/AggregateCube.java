@@ -0,0 +1,264 @@
+package com.app.service.cube;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.app.persistence.store.StringDictionary;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.index.CarsIndex;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// aggregates of cars precomputed for every combination of model, color, price band and mileage band,
+// and separately of every combination with component, because car with many components belongs to many of them
+// group-by adds together aggregates of cells falling into the same group, so it takes time proportional
+// to number of cells, not number of cars; cells are keyed by ids of model and component names and color ordinals
+// cube is immutable, changes give new cube where only cells of changed cars are updated
+// dictionaries of names are not changed once cube is made, new names are put into their copies, so ids stay the same
+// and names of removed cars are kept
+public final class AggregateCube {
+
+    public static final BigDecimal DEFAULT_PRICE_BAND_WIDTH = BigDecimal.valueOf(10_000);
+    public static final double DEFAULT_MILEAGE_BAND_WIDTH = 10_000;
+
+    // value of dimension which is not grouped
+    private static final long ALL = Long.MIN_VALUE;
+    // id of name or color which is not grouped, and component of cells without component
+    private static final int NONE = StringDictionary.NOT_FOUND;
+
+    private final BigDecimal priceBandWidth;
+    private final double mileageBandWidth;
+    private final StringDictionary models;
+    private final StringDictionary components;
+    // cells without component
+    private final Map<Cell, Aggregate> cells;
+    // cells with component, one for every component of car
+    private final Map<Cell, Aggregate> componentCells;
+
+    private AggregateCube(BigDecimal priceBandWidth, double mileageBandWidth,
+                          StringDictionary models, StringDictionary components,
+                          Map<Cell, Aggregate> cells, Map<Cell, Aggregate> componentCells) {
+        this.priceBandWidth = priceBandWidth;
+        this.mileageBandWidth = mileageBandWidth;
+        this.models = models;
+        this.components = components;
+        this.cells = cells;
+        this.componentCells = componentCells;
+    }
+
+    public static AggregateCube of(Collection<Car> cars) {
+        return of(cars, DEFAULT_PRICE_BAND_WIDTH, DEFAULT_MILEAGE_BAND_WIDTH);
+    }
+
+    public static AggregateCube of(Collection<Car> cars, BigDecimal priceBandWidth, double mileageBandWidth) {
+        if (cars == null) {
+            throw new CarsServiceException("cars collection is null");
+        }
+        if (priceBandWidth == null || priceBandWidth.signum() <= 0 || !(mileageBandWidth > 0)) {
+            throw new CarsServiceException("band width is not correct: " + priceBandWidth + ", " + mileageBandWidth);
+        }
+        AggregateCube empty = new AggregateCube(priceBandWidth, mileageBandWidth,
+                new StringDictionary(), new StringDictionary(), new HashMap<>(), new HashMap<>());
+        return empty.withDictionaries(cars).add(cars);
+    }
+
+    // removed extremes of cells are computed again from cars of their model, which index already has after changes
+    public AggregateCube withChanges(Collection<Car> removed, Collection<Car> added, CarsIndex changedIndex) {
+        if (removed == null || added == null || changedIndex == null) {
+            throw new CarsServiceException("changed cars or index is null");
+        }
+        AggregateCube changed = withDictionaries(added);
+        Set<Cell> stale = new HashSet<>();
+        for (Car car : removed) {
+            changed.forEachCell(car, (cellsOfCar, cell) -> {
+                Aggregate aggregate = cellsOfCar.get(cell);
+                Aggregate rest = aggregate.minus(car);
+                if (rest.getCount() == 0) {
+                    cellsOfCar.remove(cell);
+                    stale.remove(cell);
+                    return;
+                }
+                cellsOfCar.put(cell, rest);
+                if (aggregate.isExtreme(car)) {
+                    stale.add(cell);
+                }
+            });
+        }
+        changed.add(added);
+        changed.recompute(stale, changedIndex);
+        return changed;
+    }
+
+    // cube with maps copied, so they can be changed, and with names of given cars
+    private AggregateCube withDictionaries(Collection<Car> cars) {
+        Set<String> modelNames = new HashSet<>();
+        Set<String> componentNames = new HashSet<>();
+        for (Car car : cars) {
+            modelNames.add(car.getModel());
+            componentNames.addAll(componentsOf(car));
+        }
+        return new AggregateCube(priceBandWidth, mileageBandWidth, withNames(models, modelNames),
+                withNames(components, componentNames), new HashMap<>(cells), new HashMap<>(componentCells));
+    }
+
+    // the same dictionary when all names are known
+    private static StringDictionary withNames(StringDictionary dictionary, Collection<String> names) {
+        if (names.stream().allMatch(name -> dictionary.find(name) != NONE)) {
+            return dictionary;
+        }
+        StringDictionary changed = dictionary.copy();
+        names.forEach(changed::encode);
+        return changed;
+    }
+
+    private AggregateCube add(Collection<Car> cars) {
+        for (Car car : cars) {
+            Aggregate aggregate = Aggregate.of(car);
+            forEachCell(car, (cellsOfCar, cell) -> cellsOfCar.merge(cell, aggregate, Aggregate::plus));
+        }
+        return this;
+    }
+
+    private void recompute(Set<Cell> stale, CarsIndex index) {
+        if (stale.isEmpty()) {
+            return;
+        }
+        Map<Cell, Aggregate> recomputed = new HashMap<>();
+        Set<Integer> staleModels = new HashSet<>();
+        stale.forEach(cell -> staleModels.add(cell.getModel()));
+        for (int model : staleModels) {
+            for (Car car : index.withModel(models.decode(model))) {
+                Aggregate aggregate = Aggregate.of(car);
+                forEachCell(car, (cellsOfCar, cell) -> {
+                    if (stale.contains(cell)) {
+                        recomputed.merge(cell, aggregate, Aggregate::plus);
+                    }
+                });
+            }
+        }
+        for (Cell cell : stale) {
+            Map<Cell, Aggregate> cellsOfCar = cell.getComponent() == NONE ? cells : componentCells;
+            cellsOfCar.put(cell, recomputed.get(cell));
+        }
+    }
+
+    private interface CellConsumer {
+        void accept(Map<Cell, Aggregate> cellsOfCar, Cell cell);
+    }
+
+    private void forEachCell(Car car, CellConsumer consumer) {
+        int model = models.find(car.getModel());
+        int color = car.getColor().ordinal();
+        long priceBand = priceBand(car.getPrice());
+        long mileageBand = mileageBand(car.getMileage());
+        consumer.accept(cells, new Cell(model, color, NONE, priceBand, mileageBand));
+        for (String component : componentsOf(car)) {
+            consumer.accept(componentCells, new Cell(model, color, components.find(component), priceBand, mileageBand));
+        }
+    }
+
+    // groups sorted by values of grouping dimensions, names in alphabetical order, colors and bands in their order
+    public List<Group> groupBy(CubeQuery query) {
+        if (query == null) {
+            throw new CarsServiceException("cube query is null");
+        }
+        Set<Dimension> dimensions = query.getDimensions();
+        int model = query.getModel().map(models::find).orElse(NONE);
+        int component = query.getComponent().map(components::find).orElse(NONE);
+        if (query.getModel().isPresent() && model == NONE
+                || query.getComponent().isPresent() && component == NONE) {
+            return List.of();
+        }
+        int color = query.getColor().map(Color::ordinal).orElse(NONE);
+        long priceBand = query.getPrice().map(this::priceBand).orElse(ALL);
+        long mileageBand = query.getMileage().map(this::mileageBand).orElse(ALL);
+
+        Map<Cell, Aggregate> groups = new TreeMap<>(order());
+        (query.byComponent() ? componentCells : cells).forEach((cell, aggregate) -> {
+            if (model != NONE && cell.getModel() != model
+                    || color != NONE && cell.getColor() != color
+                    || component != NONE && cell.getComponent() != component
+                    || priceBand != ALL && cell.getPriceBand() != priceBand
+                    || mileageBand != ALL && cell.getMileageBand() != mileageBand) {
+                return;
+            }
+            Cell group = new Cell(
+                    dimensions.contains(Dimension.MODEL) ? cell.getModel() : NONE,
+                    dimensions.contains(Dimension.COLOR) ? cell.getColor() : NONE,
+                    dimensions.contains(Dimension.COMPONENT) ? cell.getComponent() : NONE,
+                    dimensions.contains(Dimension.PRICE_BAND) ? cell.getPriceBand() : ALL,
+                    dimensions.contains(Dimension.MILEAGE_BAND) ? cell.getMileageBand() : ALL);
+            groups.merge(group, aggregate, Aggregate::plus);
+        });
+        List<Group> result = new ArrayList<>(groups.size());
+        groups.forEach((group, aggregate) -> result.add(new Group(key(group, dimensions), aggregate)));
+        return result;
+    }
+
+    // number of precomputed cells, group-by visits all of them in the worst case
+    public int size() {
+        return cells.size() + componentCells.size();
+    }
+
+    private Map<Dimension, Object> key(Cell cell, Set<Dimension> dimensions) {
+        Map<Dimension, Object> key = new EnumMap<>(Dimension.class);
+        for (Dimension dimension : dimensions) {
+            switch (dimension) {
+                case MODEL -> key.put(dimension, models.decode(cell.getModel()));
+                case COLOR -> key.put(dimension, Color.values()[cell.getColor()]);
+                case COMPONENT -> key.put(dimension, components.decode(cell.getComponent()));
+                case PRICE_BAND -> key.put(dimension, new Band(
+                        priceBandWidth.multiply(BigDecimal.valueOf(cell.getPriceBand())).doubleValue(),
+                        priceBandWidth.multiply(BigDecimal.valueOf(cell.getPriceBand() + 1)).doubleValue()));
+                case MILEAGE_BAND -> key.put(dimension, new Band(
+                        mileageBandWidth * cell.getMileageBand(), mileageBandWidth * (cell.getMileageBand() + 1)));
+            }
+        }
+        return key;
+    }
+
+    private Comparator<Cell> order() {
+        return Comparator.<Cell, String>comparing(cell -> name(models, cell.getModel()))
+                .thenComparingInt(Cell::getColor)
+                .thenComparing(cell -> name(components, cell.getComponent()))
+                .thenComparingLong(Cell::getPriceBand)
+                .thenComparingLong(Cell::getMileageBand);
+    }
+
+    private static String name(StringDictionary dictionary, int id) {
+        return id == NONE ? "" : dictionary.decode(id);
+    }
+
+    private long priceBand(BigDecimal price) {
+        return price.divide(priceBandWidth, 0, RoundingMode.FLOOR).longValue();
+    }
+
+    private long mileageBand(double mileage) {
+        return (long) Math.floor(mileage / mileageBandWidth);
+    }
+
+    private static Set<String> componentsOf(Car car) {
+        return car.getComponents() == null ? Set.of() : car.getComponents();
+    }
+
+    // ids of values of all dimensions, component is NONE in cells without component
+    @Value
+    private static class Cell {
+        int model;
+        int color;
+        int component;
+        long priceBand;
+        long mileageBand;
+    }
+}
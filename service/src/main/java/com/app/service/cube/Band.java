@@ -0,0 +1,15 @@
+package com.app.service.cube;
+
+import lombok.Value;
+
+// range of price or mileage values, from is inclusive and to is exclusive
+@Value
+public class Band {
+    double from;
+    double to;
+
+    @Override
+    public String toString() {
+        return "[" + from + ", " + to + ")";
+    }
+}
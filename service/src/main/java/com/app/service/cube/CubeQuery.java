@@ -0,0 +1,125 @@
+package com.app.service.cube;
+
+import com.app.persistence.enums.Color;
+import com.app.service.exception.CarsServiceException;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.app.service.query.QueryArguments.requireValue;
+
+// dimensions to group by and values of dimensions to keep, e.g. cars of BMW grouped by color and price band
+// fewer grouping dimensions roll groups up, more dimensions and fixed values drill down into them
+//
+// CubeQuery.builder()
+//         .groupBy(Dimension.COLOR, Dimension.PRICE_BAND)
+//         .model("BMW")
+//         .build();
+public final class CubeQuery {
+
+    private final Set<Dimension> dimensions;
+    private final String model;
+    private final Color color;
+    private final String component;
+    private final BigDecimal price;
+    private final Double mileage;
+
+    private CubeQuery(Builder builder) {
+        this.dimensions = builder.dimensions;
+        this.model = builder.model;
+        this.color = builder.color;
+        this.component = builder.component;
+        this.price = builder.price;
+        this.mileage = builder.mileage;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // empty set gives one group of all cars
+    public Set<Dimension> getDimensions() {
+        return Collections.unmodifiableSet(dimensions);
+    }
+
+    public Optional<String> getModel() {
+        return Optional.ofNullable(model);
+    }
+
+    public Optional<Color> getColor() {
+        return Optional.ofNullable(color);
+    }
+
+    public Optional<String> getComponent() {
+        return Optional.ofNullable(component);
+    }
+
+    // cars of price band containing this price
+    public Optional<BigDecimal> getPrice() {
+        return Optional.ofNullable(price);
+    }
+
+    // cars of mileage band containing this mileage
+    public Optional<Double> getMileage() {
+        return Optional.ofNullable(mileage);
+    }
+
+    // with component dimension or component value, car is counted once for every its component
+    public boolean byComponent() {
+        return dimensions.contains(Dimension.COMPONENT) || component != null;
+    }
+
+    public static final class Builder {
+
+        private final Set<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+        private String model;
+        private Color color;
+        private String component;
+        private BigDecimal price;
+        private Double mileage;
+
+        private Builder() {
+        }
+
+        public Builder groupBy(Dimension... dimensions) {
+            if (Arrays.stream(dimensions).anyMatch(dimension -> dimension == null)) {
+                throw new CarsServiceException("dimension is null");
+            }
+            this.dimensions.addAll(Arrays.asList(dimensions));
+            return this;
+        }
+
+        public Builder model(String model) {
+            this.model = requireValue(model, "model");
+            return this;
+        }
+
+        public Builder color(Color color) {
+            this.color = requireValue(color, "color");
+            return this;
+        }
+
+        public Builder component(String component) {
+            this.component = requireValue(component, "component");
+            return this;
+        }
+
+        public Builder priceBandOf(BigDecimal price) {
+            this.price = requireValue(price, "price");
+            return this;
+        }
+
+        public Builder mileageBandOf(double mileage) {
+            this.mileage = mileage;
+            return this;
+        }
+
+        public CubeQuery build() {
+            return new CubeQuery(this);
+        }
+    }
+}
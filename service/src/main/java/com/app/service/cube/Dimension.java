@@ -0,0 +1,7 @@
+package com.app.service.cube;
+
+// dimensions of aggregate cube, car belongs to one group of every dimension except COMPONENT,
+// where it belongs to group of each of its components
+public enum Dimension {
+    MODEL, COLOR, COMPONENT, PRICE_BAND, MILEAGE_BAND
+}
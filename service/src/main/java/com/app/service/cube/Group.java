@@ -0,0 +1,13 @@
+package com.app.service.cube;
+
+import lombok.Value;
+
+import java.util.Map;
+
+// one group of group-by result, key has value of every grouping dimension:
+// model and component names, Color, and Band of price or mileage
+@Value
+public class Group {
+    Map<Dimension, Object> key;
+    Aggregate aggregate;
+}
@@ -0,0 +1,393 @@
+package com.app.service.index;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.app.service.enums.SortCriterion;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.parallel.ParallelExecutor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+// secondary indexes built once from loaded cars
+// cars are kept in arrays sorted by every sort criterion, range queries use binary search over sorted keys
+// index is immutable, changes of cars produce new index which shares untouched model and color groups,
+// other arrays are built again for every change
+public final class CarsIndex {
+
+    private static final Comparator<Car> PRICE_ORDER = Comparator.comparing(Car::getPrice);
+    private static final Comparator<Car> MILEAGE_ORDER = Comparator.comparingDouble(Car::getMileage);
+
+    private final Car[] byPrice;
+    private final BigDecimal[] prices;
+    private final Car[] byMileage;
+    private final double[] mileages;
+    private final Car[] byModel;
+    private final Car[] byColor;
+    private final NavigableMap<String, List<Car>> modelIndex;
+    private final Map<Color, List<Car>> colorIndex;
+
+    public CarsIndex(Collection<Car> cars) {
+        this(cars, ParallelExecutor.sequential());
+    }
+
+    // big collections are sorted by parallel sort in pool of executor
+    public CarsIndex(Collection<Car> cars, ParallelExecutor executor) {
+        if (cars == null || executor == null) {
+            throw new CarsServiceException("cars collection or executor is null");
+        }
+        Car[] sortedByPrice = cars.toArray(new Car[0]);
+        Car[] sortedByMileage = cars.toArray(new Car[0]);
+        executor.execute(cars.size(), () -> {
+            executor.sort(sortedByPrice, PRICE_ORDER);
+            executor.sort(sortedByMileage, MILEAGE_ORDER);
+            return null;
+        });
+        this.byPrice = sortedByPrice;
+        this.byMileage = sortedByMileage;
+        this.modelIndex = new TreeMap<>();
+        this.colorIndex = new EnumMap<>(Color.class);
+        for (Car car : cars) {
+            modelIndex.computeIfAbsent(car.getModel(), model -> new ArrayList<>()).add(car);
+            colorIndex.computeIfAbsent(car.getColor(), color -> new ArrayList<>()).add(car);
+        }
+        this.prices = priceKeys(byPrice);
+        this.mileages = mileageKeys(byMileage);
+        this.byModel = flatten(modelIndex.values(), cars.size());
+        this.byColor = flatten(colorIndex.values(), cars.size());
+    }
+
+    private CarsIndex(Car[] byPrice, Car[] byMileage, NavigableMap<String, List<Car>> modelIndex, Map<Color, List<Car>> colorIndex) {
+        this.byPrice = byPrice;
+        this.byMileage = byMileage;
+        this.modelIndex = modelIndex;
+        this.colorIndex = colorIndex;
+        this.prices = priceKeys(byPrice);
+        this.mileages = mileageKeys(byMileage);
+        this.byModel = flatten(modelIndex.values(), byPrice.length);
+        this.byColor = flatten(colorIndex.values(), byPrice.length);
+    }
+
+    // index without removed cars and with added cars, removed cars are matched by identity
+    // O(n + k log k) for n cars and k changed ones: sorted arrays are merged, key arrays and flattened model
+    // and color arrays are built again, only model and color groups which changed are copied
+    public CarsIndex withChanges(Collection<Car> removed, Collection<Car> added) {
+        Set<Car> removedCars = Collections.newSetFromMap(new IdentityHashMap<>());
+        removedCars.addAll(removed);
+
+        NavigableMap<String, List<Car>> changedModelIndex = new TreeMap<>(modelIndex);
+        Map<Color, List<Car>> changedColorIndex = new EnumMap<>(colorIndex);
+        Set<String> changedModels = new HashSet<>();
+        Set<Color> changedColors = EnumSet.noneOf(Color.class);
+        for (Car car : removed) {
+            changedModels.add(car.getModel());
+            changedColors.add(car.getColor());
+        }
+        for (Car car : added) {
+            changedModels.add(car.getModel());
+            changedColors.add(car.getColor());
+        }
+        changedModels.forEach(model -> regroup(changedModelIndex, model, removedCars, added, Car::getModel));
+        changedColors.forEach(color -> regroup(changedColorIndex, color, removedCars, added, Car::getColor));
+        return new CarsIndex(
+                merge(byPrice, removedCars, added, PRICE_ORDER),
+                merge(byMileage, removedCars, added, MILEAGE_ORDER),
+                changedModelIndex,
+                changedColorIndex);
+    }
+
+    private static <K> void regroup(Map<K, List<Car>> index, K key, Set<Car> removedCars, Collection<Car> added,
+                                    Function<Car, K> keyExtractor) {
+        List<Car> group = new ArrayList<>();
+        for (Car car : index.getOrDefault(key, List.of())) {
+            if (!removedCars.contains(car)) {
+                group.add(car);
+            }
+        }
+        for (Car car : added) {
+            if (key.equals(keyExtractor.apply(car))) {
+                group.add(car);
+            }
+        }
+        if (group.isEmpty()) {
+            index.remove(key);
+        } else {
+            index.put(key, group);
+        }
+    }
+
+    // sorted cars without removed ones, with added ones placed after cars equal to them
+    private static Car[] merge(Car[] sortedCars, Set<Car> removedCars, Collection<Car> added, Comparator<Car> order) {
+        Car[] sortedAdded = added.toArray(new Car[0]);
+        Arrays.sort(sortedAdded, order);
+        Car[] merged = new Car[sortedCars.length - removedCars.size() + sortedAdded.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < sortedCars.length || j < sortedAdded.length) {
+            if (i < sortedCars.length && removedCars.contains(sortedCars[i])) {
+                i++;
+            } else if (j == sortedAdded.length || (i < sortedCars.length && order.compare(sortedCars[i], sortedAdded[j]) <= 0)) {
+                merged[k++] = sortedCars[i++];
+            } else {
+                merged[k++] = sortedAdded[j++];
+            }
+        }
+        if (k != merged.length) {
+            throw new CarsServiceException("removed cars are not in index");
+        }
+        return merged;
+    }
+
+    private static BigDecimal[] priceKeys(Car[] byPrice) {
+        BigDecimal[] prices = new BigDecimal[byPrice.length];
+        for (int i = 0; i < byPrice.length; i++) {
+            prices[i] = byPrice[i].getPrice();
+        }
+        return prices;
+    }
+
+    private static double[] mileageKeys(Car[] byMileage) {
+        double[] mileages = new double[byMileage.length];
+        for (int i = 0; i < byMileage.length; i++) {
+            mileages[i] = byMileage[i].getMileage();
+        }
+        return mileages;
+    }
+
+    public int size() {
+        return byPrice.length;
+    }
+
+    public List<Car> sorted(SortCriterion sortCriterion, boolean ascending) {
+        return sorted(sortCriterion, ascending, 0, Integer.MAX_VALUE);
+    }
+
+    // at most limit sorted cars, skipping first offset cars
+    public List<Car> sorted(SortCriterion sortCriterion, boolean ascending, int offset, int limit) {
+        if (sortCriterion == null) {
+            throw new CarsServiceException("sort criterion object is null");
+        }
+        Car[] sortedCars = sortedCars(sortCriterion);
+        int count = pageSize(sortedCars.length, offset, limit);
+        return ascending
+                ? slice(sortedCars, offset, offset + count)
+                : sliceReversed(sortedCars, sortedCars.length - offset - count, sortedCars.length - offset);
+    }
+
+    // all cars in ascending order of criterion, returned list is a view of the index
+    public List<Car> sortedView(SortCriterion sortCriterion) {
+        if (sortCriterion == null) {
+            throw new CarsServiceException("sort criterion object is null");
+        }
+        return view(sortedCars(sortCriterion), 0, byPrice.length);
+    }
+
+    // order in which sortedView and sorted give cars
+    public static Comparator<Car> order(SortCriterion sortCriterion) {
+        if (sortCriterion == null) {
+            throw new CarsServiceException("sort criterion object is null");
+        }
+        return switch (sortCriterion) {
+            case COLOR -> Comparator.comparing(Car::getColor);
+            case MILEAGE -> MILEAGE_ORDER;
+            case MODEL -> Comparator.comparing(Car::getModel);
+            default -> PRICE_ORDER;
+        };
+    }
+
+    // cars with price between bounds in ascending price order, null bound means there is no bound
+    // returned list is a view of the index, so its size is known without copying cars
+    public List<Car> priceRange(BigDecimal priceFrom, boolean fromInclusive, BigDecimal priceTo, boolean toInclusive) {
+        int from = priceFrom == null ? 0 : fromInclusive ? lowerBound(prices, priceFrom) : upperBound(prices, priceFrom);
+        int to = priceTo == null ? prices.length : toInclusive ? upperBound(prices, priceTo) : lowerBound(prices, priceTo);
+        return view(byPrice, from, to);
+    }
+
+    // cars with mileage between bounds in ascending mileage order, null bound means there is no bound
+    public List<Car> mileageRange(Double mileageFrom, boolean fromInclusive, Double mileageTo, boolean toInclusive) {
+        int from = mileageFrom == null ? 0 : fromInclusive ? lowerBound(mileages, mileageFrom) : upperBound(mileages, mileageFrom);
+        int to = mileageTo == null ? mileages.length : toInclusive ? upperBound(mileages, mileageTo) : lowerBound(mileages, mileageTo);
+        return view(byMileage, from, to);
+    }
+
+    // cars with price in open range (priceFrom, priceTo), in ascending price order
+    public List<Car> priceBetween(BigDecimal priceFrom, BigDecimal priceTo) {
+        int from = upperBound(prices, priceFrom);
+        int to = lowerBound(prices, priceTo);
+        return slice(byPrice, from, to);
+    }
+
+    // cars with mileage greater than given value, in ascending mileage order
+    public List<Car> mileageGreaterThan(double mileage) {
+        return mileageGreaterThan(mileage, 0, Integer.MAX_VALUE);
+    }
+
+    public List<Car> mileageGreaterThan(double mileage, int offset, int limit) {
+        int from = upperBound(mileages, mileage);
+        int count = pageSize(byMileage.length - from, offset, limit);
+        return slice(byMileage, from + offset, from + offset + count);
+    }
+
+    // at most limit cars, from the most expensive one
+    public List<Car> mostExpensive(int limit) {
+        return sliceReversed(byPrice, Math.max(0, byPrice.length - limit), byPrice.length);
+    }
+
+    // at most limit cars, from the one with the biggest mileage
+    public List<Car> biggestMileage(int limit) {
+        return sliceReversed(byMileage, Math.max(0, byMileage.length - limit), byMileage.length);
+    }
+
+    // all cars sharing the biggest price
+    public List<Car> withBiggestPrice() {
+        if (byPrice.length == 0) {
+            return new ArrayList<>();
+        }
+        return slice(byPrice, lowerBound(prices, prices[prices.length - 1]), byPrice.length);
+    }
+
+    public Optional<BigDecimal> biggestPrice() {
+        return prices.length == 0 ? Optional.empty() : Optional.of(prices[prices.length - 1]);
+    }
+
+    public Optional<BigDecimal> smallestPrice() {
+        return prices.length == 0 ? Optional.empty() : Optional.of(prices[0]);
+    }
+
+    public List<Car> withModel(String model) {
+        return Collections.unmodifiableList(modelIndex.getOrDefault(model, List.of()));
+    }
+
+    public List<Car> withColor(Color color) {
+        return Collections.unmodifiableList(colorIndex.getOrDefault(color, List.of()));
+    }
+
+    public NavigableMap<String, List<Car>> getModelIndex() {
+        return Collections.unmodifiableNavigableMap(modelIndex);
+    }
+
+    public Map<Color, List<Car>> getColorIndex() {
+        return Collections.unmodifiableMap(colorIndex);
+    }
+
+    private static Car[] flatten(Collection<List<Car>> groups, int size) {
+        Car[] flattened = new Car[size];
+        int i = 0;
+        for (List<Car> group : groups) {
+            for (Car car : group) {
+                flattened[i++] = car;
+            }
+        }
+        return flattened;
+    }
+
+    // number of elements on page of matching elements which starts at offset
+    private static int pageSize(int matching, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new CarsServiceException("offset and limit cannot be negative");
+        }
+        return offset >= matching ? 0 : (int) Math.min(limit, (long) matching - offset);
+    }
+
+    private Car[] sortedCars(SortCriterion sortCriterion) {
+        return switch (sortCriterion) {
+            case COLOR -> byColor;
+            case MILEAGE -> byMileage;
+            case MODEL -> byModel;
+            default -> byPrice;
+        };
+    }
+
+    private static List<Car> view(Car[] sortedCars, int from, int to) {
+        return Collections.unmodifiableList(Arrays.asList(sortedCars).subList(from, Math.max(from, to)));
+    }
+
+    private static List<Car> slice(Car[] sortedCars, int from, int to) {
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(sortedCars).subList(from, to));
+    }
+
+    private static List<Car> sliceReversed(Car[] sortedCars, int from, int to) {
+        List<Car> reversed = new ArrayList<>(to - from);
+        for (int i = to - 1; i >= from; i--) {
+            reversed.add(sortedCars[i]);
+        }
+        return reversed;
+    }
+
+    // index of first key greater or equal to given key
+    private static int lowerBound(BigDecimal[] keys, BigDecimal key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // index of first key greater than given key
+    private static int upperBound(BigDecimal[] keys, BigDecimal key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(double[] keys, double key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(keys[middle], key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(double[] keys, double key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(keys[middle], key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
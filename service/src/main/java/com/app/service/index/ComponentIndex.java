@@ -0,0 +1,134 @@
+package com.app.service.index;
+
+import com.app.service.exception.CarsServiceException;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// inverted index from component to ids of cars which have it
+// components are kept in order of their first appearance, car ids are bits of a bitmap
+// copies share bitmaps, copy clones a shared bitmap before it changes it for the first time
+// index is not changed after it was copied, snapshots change only copies which are not published yet
+public final class ComponentIndex {
+
+    private final Map<String, BitSet> carsByComponent;
+    private final Set<BitSet> ownBitmaps = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public ComponentIndex() {
+        this.carsByComponent = new LinkedHashMap<>();
+    }
+
+    private ComponentIndex(Map<String, BitSet> carsByComponent) {
+        this.carsByComponent = new LinkedHashMap<>(carsByComponent);
+    }
+
+    // copy owns no bitmap yet, this index is left as it is
+    public ComponentIndex copy() {
+        return new ComponentIndex(carsByComponent);
+    }
+
+    public void add(int carId, Collection<String> components) {
+        for (String component : components) {
+            BitSet carIds = carsByComponent.get(component);
+            if (carIds == null) {
+                carIds = new BitSet();
+                ownBitmaps.add(carIds);
+                carsByComponent.put(component, carIds);
+            }
+            writable(component, carIds).set(carId);
+        }
+    }
+
+    public void remove(int carId, Collection<String> components) {
+        for (String component : components) {
+            BitSet carIds = carsByComponent.get(component);
+            if (carIds != null && carIds.get(carId)) {
+                carIds = writable(component, carIds);
+                carIds.clear(carId);
+                if (carIds.isEmpty()) {
+                    carsByComponent.remove(component);
+                }
+            }
+        }
+    }
+
+    private BitSet writable(String component, BitSet carIds) {
+        if (ownBitmaps.contains(carIds)) {
+            return carIds;
+        }
+        BitSet clone = (BitSet) carIds.clone();
+        ownBitmaps.add(clone);
+        carsByComponent.put(component, clone);
+        return clone;
+    }
+
+    // only components which were added or removed are touched
+    public void update(int carId, Set<String> oldComponents, Set<String> newComponents) {
+        for (String component : oldComponents) {
+            if (!newComponents.contains(component)) {
+                remove(carId, Set.of(component));
+            }
+        }
+        for (String component : newComponents) {
+            if (!oldComponents.contains(component)) {
+                add(carId, Set.of(component));
+            }
+        }
+    }
+
+    public Set<String> components() {
+        return Collections.unmodifiableSet(carsByComponent.keySet());
+    }
+
+    public BitSet withComponent(String component) {
+        if (component == null) {
+            throw new CarsServiceException("component is null");
+        }
+        BitSet carIds = carsByComponent.get(component);
+        return carIds == null ? new BitSet() : (BitSet) carIds.clone();
+    }
+
+    // number of cars with component, without copying bitmap
+    public int count(String component) {
+        BitSet carIds = carsByComponent.get(component);
+        return carIds == null ? 0 : carIds.cardinality();
+    }
+
+    public BitSet withAllComponents(Collection<String> components) {
+        if (components == null || components.isEmpty()) {
+            throw new CarsServiceException("components collection is null or empty");
+        }
+        BitSet result = null;
+        for (String component : components) {
+            BitSet carIds = carsByComponent.get(component);
+            if (carIds == null) {
+                return new BitSet();
+            }
+            if (result == null) {
+                result = (BitSet) carIds.clone();
+            } else {
+                result.and(carIds);
+            }
+        }
+        return result;
+    }
+
+    public BitSet withAnyComponent(Collection<String> components) {
+        if (components == null) {
+            throw new CarsServiceException("components collection is null");
+        }
+        BitSet result = new BitSet();
+        for (String component : components) {
+            BitSet carIds = carsByComponent.get(component);
+            if (carIds != null) {
+                result.or(carIds);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package com.app.service.parallel;
+
+import com.app.service.exception.CarsServiceException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// runs work over cars sequentially in calling thread, or split across dedicated ForkJoinPool
+// parallel streams and parallel sorts started inside task given to execute run in the dedicated pool,
+// so queries do not take threads of common pool from the rest of application
+// work over fewer elements than threshold is not split, splitting small work costs more than it saves
+public final class ParallelExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_THRESHOLD = 8_192;
+
+    private static final ParallelExecutor SEQUENTIAL = new ParallelExecutor(null, Integer.MAX_VALUE);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    private ParallelExecutor(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public static ParallelExecutor sequential() {
+        return SEQUENTIAL;
+    }
+
+    public static ParallelExecutor withPool(int parallelism, int threshold) {
+        if (parallelism <= 0) {
+            throw new CarsServiceException("parallelism value is not correct: " + parallelism);
+        }
+        if (threshold <= 0) {
+            throw new CarsServiceException("threshold value is not correct: " + threshold);
+        }
+        return new ParallelExecutor(new ForkJoinPool(parallelism), threshold);
+    }
+
+    // pool with one thread per available processor
+    public static ParallelExecutor withPool() {
+        return withPool(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    }
+
+    public boolean isParallel(int size) {
+        return pool != null && size >= threshold;
+    }
+
+    // task is run in dedicated pool when work over size elements is split, otherwise in calling thread
+    public <T> T execute(int size, Supplier<T> task) {
+        if (!isParallel(size) || ForkJoinTask.getPool() == pool) {
+            return task.get();
+        }
+        return pool.submit(task::get).join();
+    }
+
+    // fork-join tasks split themselves, without dedicated pool they run in common pool
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return pool == null ? ForkJoinPool.commonPool().invoke(task) : pool.invoke(task);
+    }
+
+    // one task for every element, e.g. for every file, results are in order of elements
+    // tasks run in dedicated pool, or in common pool without it, because each of them is big enough to be worth a thread
+    public <T, R> List<R> invokeAll(List<T> elements, Function<? super T, ? extends R> task) {
+        if (elements.size() <= 1) {
+            return elements.stream().map(task).collect(Collectors.toList());
+        }
+        List<ForkJoinTask<R>> tasks = elements
+                .stream()
+                .map(element -> ForkJoinTask.<R>adapt(() -> task.apply(element)))
+                .collect(Collectors.toList());
+        return invoke(ForkJoinTask.adapt(() -> ForkJoinTask
+                .invokeAll(tasks)
+                .stream()
+                .map(ForkJoinTask::join)
+                .collect(Collectors.toList())));
+    }
+
+    // executor for independent tasks of work which is split anyway, e.g. export chunks, common pool without dedicated pool
+    public Executor asExecutor() {
+        return pool == null ? ForkJoinPool.commonPool() : pool;
+    }
+
+    public int parallelism() {
+        return pool == null ? ForkJoinPool.getCommonPoolParallelism() : pool.getParallelism();
+    }
+
+    // parallel stream is split across dedicated pool only when it is used inside execute
+    public <T> Stream<T> stream(Collection<T> elements) {
+        return isParallel(elements.size()) ? elements.parallelStream() : elements.stream();
+    }
+
+    public <T> void sort(T[] elements, Comparator<? super T> comparator) {
+        if (isParallel(elements.length)) {
+            Arrays.parallelSort(elements, comparator);
+        } else {
+            Arrays.sort(elements, comparator);
+        }
+    }
+
+    public <T> void sort(List<T> elements, Comparator<? super T> comparator) {
+        if (isParallel(elements.size())) {
+            @SuppressWarnings("unchecked")
+            T[] sorted = (T[]) elements.toArray();
+            Arrays.parallelSort(sorted, comparator);
+            for (int i = 0; i < sorted.length; i++) {
+                elements.set(i, sorted[i]);
+            }
+        } else {
+            elements.sort(comparator);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
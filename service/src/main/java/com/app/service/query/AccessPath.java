@@ -0,0 +1,6 @@
+package com.app.service.query;
+
+// way in which QueryPlan finds candidate cars, which are then checked against all filters of query
+public enum AccessPath {
+    PRICE_RANGE, MILEAGE_RANGE, MODEL, COLOR, ALL_COMPONENTS, ANY_COMPONENT, ORDERED_SCAN, SCAN
+}
@@ -0,0 +1,22 @@
+package com.app.service.query;
+
+import lombok.Value;
+
+// lower or upper bound of range filter
+@Value
+public class Bound<T extends Comparable<? super T>> {
+    T value;
+    boolean inclusive;
+
+    // value is above lower bound
+    boolean isBelow(T other) {
+        int comparison = value.compareTo(other);
+        return inclusive ? comparison <= 0 : comparison < 0;
+    }
+
+    // value is below upper bound
+    boolean isAbove(T other) {
+        int comparison = value.compareTo(other);
+        return inclusive ? comparison >= 0 : comparison > 0;
+    }
+}
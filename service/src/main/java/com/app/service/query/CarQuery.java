@@ -0,0 +1,278 @@
+package com.app.service.query;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.app.service.enums.SortCriterion;
+import com.app.service.exception.CarsServiceException;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static com.app.service.query.QueryArguments.copyOf;
+import static com.app.service.query.QueryArguments.requireValue;
+
+// filters, order and size of cars query result, car matches query when it passes every filter
+// query says only what is wanted, QueryPlanner decides which index is used to find matching cars
+//
+// CarQuery.builder()
+//         .colors(Color.BLUE)
+//         .priceLessThan(new BigDecimal("50000"))
+//         .withAllComponents("ABS")
+//         .sortBy(SortCriterion.MILEAGE, true)
+//         .limit(20)
+//         .build();
+public final class CarQuery {
+
+    private final Set<String> models;
+    private final Set<Color> colors;
+    private final Bound<BigDecimal> priceFrom;
+    private final Bound<BigDecimal> priceTo;
+    private final Bound<Double> mileageFrom;
+    private final Bound<Double> mileageTo;
+    private final Set<String> allComponents;
+    private final Set<String> anyComponents;
+    private final Predicate<Car> condition;
+    private final SortCriterion sortCriterion;
+    private final boolean ascending;
+    private final int offset;
+    private final int limit;
+
+    private CarQuery(Builder builder) {
+        this.models = builder.models;
+        this.colors = builder.colors;
+        this.priceFrom = builder.priceFrom;
+        this.priceTo = builder.priceTo;
+        this.mileageFrom = builder.mileageFrom;
+        this.mileageTo = builder.mileageTo;
+        this.allComponents = builder.allComponents;
+        this.anyComponents = builder.anyComponents;
+        this.condition = builder.condition;
+        this.sortCriterion = builder.sortCriterion;
+        this.ascending = builder.ascending;
+        this.offset = builder.offset;
+        this.limit = builder.limit;
+    }
+
+    // the same filters and order with other page of results
+    public CarQuery withPage(int offset, int limit) {
+        return new CarQuery(this, offset, limit);
+    }
+
+    private CarQuery(CarQuery query, int offset, int limit) {
+        if (offset < 0) {
+            throw new CarsServiceException("offset value is not correct: " + offset);
+        }
+        if (limit <= 0) {
+            throw new CarsServiceException("limit value is not correct: " + limit);
+        }
+        this.models = query.models;
+        this.colors = query.colors;
+        this.priceFrom = query.priceFrom;
+        this.priceTo = query.priceTo;
+        this.mileageFrom = query.mileageFrom;
+        this.mileageTo = query.mileageTo;
+        this.allComponents = query.allComponents;
+        this.anyComponents = query.anyComponents;
+        this.condition = query.condition;
+        this.sortCriterion = query.sortCriterion;
+        this.ascending = query.ascending;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean matches(Car car) {
+        return (models == null || models.contains(car.getModel()))
+                && (colors == null || colors.contains(car.getColor()))
+                && (priceFrom == null || priceFrom.isBelow(car.getPrice()))
+                && (priceTo == null || priceTo.isAbove(car.getPrice()))
+                && (mileageFrom == null || mileageFrom.isBelow(car.getMileage()))
+                && (mileageTo == null || mileageTo.isAbove(car.getMileage()))
+                && (allComponents == null || car.getComponents().containsAll(allComponents))
+                && (anyComponents == null || anyComponents.stream().anyMatch(car.getComponents()::contains))
+                && (condition == null || condition.test(car));
+    }
+
+    // empty filter means that every car passes it
+    public Optional<Set<String>> getModels() {
+        return Optional.ofNullable(models).map(Collections::unmodifiableSet);
+    }
+
+    public Optional<Set<Color>> getColors() {
+        return Optional.ofNullable(colors).map(Collections::unmodifiableSet);
+    }
+
+    public Optional<Bound<BigDecimal>> getPriceFrom() {
+        return Optional.ofNullable(priceFrom);
+    }
+
+    public Optional<Bound<BigDecimal>> getPriceTo() {
+        return Optional.ofNullable(priceTo);
+    }
+
+    public Optional<Bound<Double>> getMileageFrom() {
+        return Optional.ofNullable(mileageFrom);
+    }
+
+    public Optional<Bound<Double>> getMileageTo() {
+        return Optional.ofNullable(mileageTo);
+    }
+
+    public Optional<Set<String>> getAllComponents() {
+        return Optional.ofNullable(allComponents).map(Collections::unmodifiableSet);
+    }
+
+    public Optional<Set<String>> getAnyComponents() {
+        return Optional.ofNullable(anyComponents).map(Collections::unmodifiableSet);
+    }
+
+    // empty when cars can be returned in any order
+    public Optional<SortCriterion> getSortCriterion() {
+        return Optional.ofNullable(sortCriterion);
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    // Integer.MAX_VALUE when there is no limit
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean hasLimit() {
+        return limit != Integer.MAX_VALUE;
+    }
+
+    public static final class Builder {
+
+        private Set<String> models;
+        private Set<Color> colors;
+        private Bound<BigDecimal> priceFrom;
+        private Bound<BigDecimal> priceTo;
+        private Bound<Double> mileageFrom;
+        private Bound<Double> mileageTo;
+        private Set<String> allComponents;
+        private Set<String> anyComponents;
+        private Predicate<Car> condition;
+        private SortCriterion sortCriterion;
+        private boolean ascending = true;
+        private int offset;
+        private int limit = Integer.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        public Builder models(String... models) {
+            return models(Arrays.asList(models));
+        }
+
+        public Builder models(Collection<String> models) {
+            this.models = copyOf(models, "models");
+            return this;
+        }
+
+        public Builder colors(Color... colors) {
+            Set<Color> colorSet = EnumSet.noneOf(Color.class);
+            colorSet.addAll(copyOf(Arrays.asList(colors), "colors"));
+            this.colors = colorSet;
+            return this;
+        }
+
+        public Builder priceGreaterThan(BigDecimal price) {
+            this.priceFrom = new Bound<>(requireValue(price, "price"), false);
+            return this;
+        }
+
+        public Builder priceAtLeast(BigDecimal price) {
+            this.priceFrom = new Bound<>(requireValue(price, "price"), true);
+            return this;
+        }
+
+        public Builder priceLessThan(BigDecimal price) {
+            this.priceTo = new Bound<>(requireValue(price, "price"), false);
+            return this;
+        }
+
+        public Builder priceAtMost(BigDecimal price) {
+            this.priceTo = new Bound<>(requireValue(price, "price"), true);
+            return this;
+        }
+
+        public Builder mileageGreaterThan(double mileage) {
+            this.mileageFrom = new Bound<>(mileage, false);
+            return this;
+        }
+
+        public Builder mileageAtLeast(double mileage) {
+            this.mileageFrom = new Bound<>(mileage, true);
+            return this;
+        }
+
+        public Builder mileageLessThan(double mileage) {
+            this.mileageTo = new Bound<>(mileage, false);
+            return this;
+        }
+
+        public Builder mileageAtMost(double mileage) {
+            this.mileageTo = new Bound<>(mileage, true);
+            return this;
+        }
+
+        public Builder withAllComponents(String... components) {
+            this.allComponents = copyOf(Arrays.asList(components), "components");
+            return this;
+        }
+
+        public Builder withAnyComponent(String... components) {
+            this.anyComponents = copyOf(Arrays.asList(components), "components");
+            return this;
+        }
+
+        // condition on any car field, it is checked for cars found by the other filters
+        public Builder where(Predicate<Car> condition) {
+            Predicate<Car> requiredCondition = requireValue(condition, "condition");
+            this.condition = this.condition == null ? requiredCondition : this.condition.and(requiredCondition);
+            return this;
+        }
+
+        public Builder sortBy(SortCriterion sortCriterion, boolean ascending) {
+            this.sortCriterion = requireValue(sortCriterion, "sort criterion");
+            this.ascending = ascending;
+            return this;
+        }
+
+        public Builder offset(int offset) {
+            if (offset < 0) {
+                throw new CarsServiceException("offset value is not correct: " + offset);
+            }
+            this.offset = offset;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new CarsServiceException("limit value is not correct: " + limit);
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public CarQuery build() {
+            return new CarQuery(this);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.app.service.query;
+
+import com.app.service.exception.CarsServiceException;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// checks of values given to builders of car and cube queries, name of wrong value is given in message
+public final class QueryArguments {
+
+    private QueryArguments() {
+    }
+
+    public static <T> T requireValue(T value, String name) {
+        if (value == null) {
+            throw new CarsServiceException(name + " is null");
+        }
+        return value;
+    }
+
+    // values in order they were given, without repeated ones
+    public static <T> Set<T> copyOf(Collection<T> values, String name) {
+        if (values == null || values.isEmpty() || values.stream().anyMatch(Objects::isNull)) {
+            throw new CarsServiceException(name + " collection is null, empty or contains null");
+        }
+        return new LinkedHashSet<>(values);
+    }
+}
@@ -0,0 +1,135 @@
+package com.app.service.query;
+
+import com.app.persistence.model.Car;
+import com.app.service.enums.SortCriterion;
+import com.app.service.index.CarsIndex;
+import com.app.service.parallel.ParallelExecutor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// access path chosen for query together with its estimates
+// candidates given in order of query sort criterion, or of any query without sort criterion, are read
+// only until offset + limit matches are found, other candidates are sorted or kept in bounded top-k heap
+// scans which cannot stop early are split across pool of executor when there are enough candidates
+public final class QueryPlan {
+
+    private final CarQuery query;
+    private final ParallelExecutor executor;
+    private final AccessPath accessPath;
+    private final Supplier<List<Car>> candidates;
+    private final SortCriterion candidatesOrder;
+    private final long estimatedRows;
+    private final double estimatedCost;
+
+    QueryPlan(CarQuery query, ParallelExecutor executor, AccessPath accessPath, Supplier<List<Car>> candidates,
+              SortCriterion candidatesOrder, long estimatedRows, double estimatedCost) {
+        this.query = query;
+        this.executor = executor;
+        this.accessPath = accessPath;
+        this.candidates = candidates;
+        this.candidatesOrder = candidatesOrder;
+        this.estimatedRows = estimatedRows;
+        this.estimatedCost = estimatedCost;
+    }
+
+    public List<Car> execute() {
+        List<Car> candidateCars = candidates.get();
+        return executor.execute(candidateCars.size(), () -> execute(candidateCars));
+    }
+
+    private List<Car> execute(List<Car> candidateCars) {
+        if (isStreaming()) {
+            return query.hasLimit() || !executor.isParallel(candidateCars.size())
+                    ? readUntilLimit(candidateCars)
+                    : readAll(candidateCars);
+        }
+        // descending order is compared directly, result is never reversed afterwards
+        Comparator<Car> order = CarsIndex.order(query.getSortCriterion().orElseThrow());
+        if (!query.isAscending()) {
+            order = order.reversed();
+        }
+        List<Car> sortedMatches;
+        if (query.hasLimit()) {
+            sortedMatches = executor
+                    .stream(candidateCars)
+                    .filter(query::matches)
+                    .collect(TopK.collector(resultsNeeded(), order.reversed()));
+        } else {
+            sortedMatches = executor
+                    .stream(candidateCars)
+                    .filter(query::matches)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            executor.sort(sortedMatches, order);
+        }
+        int from = Math.min(query.getOffset(), sortedMatches.size());
+        return new ArrayList<>(sortedMatches.subList(from, sortedMatches.size()));
+    }
+
+    public AccessPath getAccessPath() {
+        return accessPath;
+    }
+
+    // number of candidate cars given by access path
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    // estimated number of candidate cars which are visited
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    // candidates are read in result order, so reading stops after last needed match
+    public boolean isStreaming() {
+        return query.getSortCriterion().map(criterion -> criterion == candidatesOrder).orElse(true);
+    }
+
+    private List<Car> readUntilLimit(List<Car> candidateCars) {
+        boolean reversed = query.getSortCriterion().isPresent() && !query.isAscending();
+        List<Car> matches = new ArrayList<>();
+        int skipped = 0;
+        int size = candidateCars.size();
+        for (int i = 0; i < size && matches.size() < query.getLimit(); i++) {
+            Car car = candidateCars.get(reversed ? size - 1 - i : i);
+            if (query.matches(car)) {
+                if (skipped < query.getOffset()) {
+                    skipped++;
+                } else {
+                    matches.add(car);
+                }
+            }
+        }
+        return matches;
+    }
+
+    // ordered parallel stream keeps candidates order, so offset skips the same matches as sequential reading
+    private List<Car> readAll(List<Car> candidateCars) {
+        boolean reversed = query.getSortCriterion().isPresent() && !query.isAscending();
+        int size = candidateCars.size();
+        return IntStream.range(0, size)
+                .parallel()
+                .mapToObj(i -> candidateCars.get(reversed ? size - 1 - i : i))
+                .filter(query::matches)
+                .skip(query.getOffset())
+                .collect(Collectors.toList());
+    }
+
+    private int resultsNeeded() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) query.getOffset() + query.getLimit());
+    }
+
+    @Override
+    public String toString() {
+        String order = query.getSortCriterion()
+                .map(criterion -> isStreaming()
+                        ? ", read in " + criterion + " order"
+                        : query.hasLimit() ? ", top " + resultsNeeded() + " by " + criterion : ", sorted by " + criterion)
+                .orElse("");
+        return accessPath + " (rows: " + estimatedRows + ", cost: " + Math.round(estimatedCost) + order + ")";
+    }
+}
@@ -0,0 +1,129 @@
+package com.app.service.query;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.app.service.enums.SortCriterion;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.index.CarsIndex;
+import com.app.service.index.ComponentIndex;
+import com.app.service.store.CarsSnapshot;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+// chooses access path with the smallest estimated cost for query
+// every filter which has an index is an access path, number of cars it gives is known without visiting cars:
+// ranges from binary search, model and color groups from list sizes, components from bitmap cardinality
+// cost of path is number of cars visited, it is smaller than number of rows of path when path gives cars in result order
+// and query has limit, as reading stops after offset + limit matches; matches are estimated from selectivities
+// of all filters, which are assumed to be independent
+public final class QueryPlanner {
+
+    private QueryPlanner() {
+    }
+
+    public static QueryPlan plan(CarsSnapshot snapshot, CarQuery query) {
+        if (snapshot == null || query == null) {
+            throw new CarsServiceException("snapshot or query object is null");
+        }
+        CarsIndex carsIndex = snapshot.getCarsIndex();
+        ComponentIndex componentIndex = snapshot.getComponentIndex();
+        long cars = carsIndex.size();
+        List<Candidates> paths = new ArrayList<>();
+
+        if (query.getPriceFrom().isPresent() || query.getPriceTo().isPresent()) {
+            Bound<BigDecimal> from = query.getPriceFrom().orElse(null);
+            Bound<BigDecimal> to = query.getPriceTo().orElse(null);
+            List<Car> priceRange = carsIndex.priceRange(
+                    from == null ? null : from.getValue(), from == null || from.isInclusive(),
+                    to == null ? null : to.getValue(), to == null || to.isInclusive());
+            paths.add(new Candidates(AccessPath.PRICE_RANGE, priceRange.size(), () -> priceRange, SortCriterion.PRICE));
+        }
+        if (query.getMileageFrom().isPresent() || query.getMileageTo().isPresent()) {
+            Bound<Double> from = query.getMileageFrom().orElse(null);
+            Bound<Double> to = query.getMileageTo().orElse(null);
+            List<Car> mileageRange = carsIndex.mileageRange(
+                    from == null ? null : from.getValue(), from == null || from.isInclusive(),
+                    to == null ? null : to.getValue(), to == null || to.isInclusive());
+            paths.add(new Candidates(AccessPath.MILEAGE_RANGE, mileageRange.size(), () -> mileageRange, SortCriterion.MILEAGE));
+        }
+        query.getModels().ifPresent(models -> {
+            // groups are read in model order, so cars are given sorted by model
+            Set<String> sortedModels = new TreeSet<>(models);
+            long rows = sortedModels.stream().mapToLong(model -> carsIndex.withModel(model).size()).sum();
+            paths.add(new Candidates(AccessPath.MODEL, rows, () -> {
+                List<Car> modelCars = new ArrayList<>((int) rows);
+                sortedModels.forEach(model -> modelCars.addAll(carsIndex.withModel(model)));
+                return modelCars;
+            }, SortCriterion.MODEL));
+        });
+        query.getColors().ifPresent(colors -> {
+            Set<Color> sortedColors = EnumSet.copyOf(colors);
+            long rows = sortedColors.stream().mapToLong(color -> carsIndex.withColor(color).size()).sum();
+            paths.add(new Candidates(AccessPath.COLOR, rows, () -> {
+                List<Car> colorCars = new ArrayList<>((int) rows);
+                sortedColors.forEach(color -> colorCars.addAll(carsIndex.withColor(color)));
+                return colorCars;
+            }, SortCriterion.COLOR));
+        });
+        query.getAllComponents().ifPresent(components -> {
+            // the least common component bounds number of cars which have all of them
+            long rows = components.stream().mapToLong(componentIndex::count).min().orElse(0);
+            paths.add(new Candidates(AccessPath.ALL_COMPONENTS, rows,
+                    () -> snapshot.carsWithIds(componentIndex.withAllComponents(components)), null));
+        });
+        query.getAnyComponents().ifPresent(components -> {
+            long rows = Math.min(cars, components.stream().mapToLong(componentIndex::count).sum());
+            paths.add(new Candidates(AccessPath.ANY_COMPONENT, rows,
+                    () -> snapshot.carsWithIds(componentIndex.withAnyComponent(components)), null));
+        });
+
+        double estimatedMatches = cars;
+        for (Candidates path : paths) {
+            estimatedMatches *= cars == 0 ? 0 : (double) path.rows / cars;
+        }
+
+        query.getSortCriterion().ifPresent(criterion -> paths.add(new Candidates(AccessPath.ORDERED_SCAN, cars,
+                () -> carsIndex.sortedView(criterion), criterion)));
+        paths.add(new Candidates(AccessPath.SCAN, cars, snapshot::getCars, null));
+
+        QueryPlan best = null;
+        for (Candidates path : paths) {
+            double cost = cost(query, path, estimatedMatches);
+            if (best == null || cost < best.getEstimatedCost()) {
+                best = new QueryPlan(query, snapshot.getExecutor(), path.accessPath, path.cars, path.order, path.rows, cost);
+            }
+        }
+        return best;
+    }
+
+    private static double cost(CarQuery query, Candidates path, double estimatedMatches) {
+        boolean streaming = query.getSortCriterion().map(criterion -> criterion == path.order).orElse(true);
+        if (!streaming || !query.hasLimit() || path.rows == 0) {
+            return path.rows;
+        }
+        double needed = (double) query.getOffset() + query.getLimit();
+        return path.rows * Math.min(1.0, needed / Math.max(estimatedMatches, 1.0));
+    }
+
+    private static final class Candidates {
+
+        private final AccessPath accessPath;
+        private final long rows;
+        private final Supplier<List<Car>> cars;
+        // null when cars are not given in order of any sort criterion
+        private final SortCriterion order;
+
+        private Candidates(AccessPath accessPath, long rows, Supplier<List<Car>> cars, SortCriterion order) {
+            this.accessPath = accessPath;
+            this.rows = rows;
+            this.cars = cars;
+            this.order = order;
+        }
+    }
+}
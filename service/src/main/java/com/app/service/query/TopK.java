@@ -0,0 +1,59 @@
+package com.app.service.query;
+
+import com.app.service.exception.CarsServiceException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+// keeps limit greatest elements seen so far in a bounded heap
+// smallest kept element is on top of the heap, so every element is compared with it only
+public final class TopK<T> {
+
+    private final int limit;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<T> heap;
+
+    public TopK(int limit, Comparator<? super T> comparator) {
+        if (limit <= 0) {
+            throw new CarsServiceException("limit value is not correct: " + limit);
+        }
+        if (comparator == null) {
+            throw new CarsServiceException("comparator is null");
+        }
+        this.limit = limit;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024), comparator);
+    }
+
+    public static <T> Collector<T, ?, List<T>> collector(int limit, Comparator<? super T> comparator) {
+        return Collector.of(
+                () -> new TopK<T>(limit, comparator),
+                TopK::accept,
+                TopK::combine,
+                TopK::toList);
+    }
+
+    public void accept(T element) {
+        if (heap.size() < limit) {
+            heap.add(element);
+        } else if (comparator.compare(element, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    public TopK<T> combine(TopK<T> other) {
+        other.heap.forEach(this::accept);
+        return this;
+    }
+
+    // kept elements, from the greatest one
+    public List<T> toList() {
+        List<T> elements = new ArrayList<>(heap);
+        elements.sort(comparator.reversed());
+        return elements;
+    }
+}
@@ -0,0 +1,150 @@
+package com.app.service.reload;
+
+import com.app.persistence.metrics.Counter;
+import com.app.persistence.metrics.Metrics;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.service.CarFiles;
+import com.app.service.service.CarsService;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+// watches json files of service and reloads service in background thread after they change
+// editors and copying tools write file in many steps, so reload starts only after files were quiet for a while
+// reload which fails, e.g. because file is not valid json yet, keeps current cars and waits for next change
+// binary snapshots and change logs lying next to json files do not start reload,
+// subdirectories created after start are not watched
+public final class CarsReloader implements AutoCloseable {
+
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofMillis(500);
+
+    private static final String JSON_EXTENSION = ".json";
+    private static final Counter RELOADS = Metrics.counter("reload.reloads");
+    private static final Counter FAILURES = Metrics.counter("reload.failures");
+
+    private final CarsService carsService;
+    private final Duration quietPeriod;
+    private final Consumer<ReloadResult> onReload;
+    private final Consumer<RuntimeException> onFailure;
+    private final WatchService watchService;
+    private final Set<Path> carFiles;
+    private final Thread thread;
+
+    public CarsReloader(CarsService carsService) {
+        this(carsService, DEFAULT_QUIET_PERIOD, result -> { }, failure -> { });
+    }
+
+    public CarsReloader(CarsService carsService, Duration quietPeriod,
+                        Consumer<ReloadResult> onReload, Consumer<RuntimeException> onFailure) {
+        if (carsService == null || quietPeriod == null || onReload == null || onFailure == null) {
+            throw new CarsServiceException("cars service, quiet period or listener is null");
+        }
+        this.carsService = carsService;
+        this.quietPeriod = quietPeriod;
+        this.onReload = onReload;
+        this.onFailure = onFailure;
+        this.carFiles = carFiles(carsService.getFilename());
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories(carsService.getFilename(), carFiles)) {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        } catch (IOException e) {
+            throw new CarsServiceException("car files cannot be watched: " + e.getMessage());
+        }
+        this.thread = new Thread(this::watch, "cars-reloader");
+        this.thread.setDaemon(true);
+    }
+
+    public CarsReloader start() {
+        thread.start();
+        return this;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // further events of the same write are collected until files are quiet
+                while ((key = watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // reloader is closed
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == OVERFLOW || isCarFile(directory.resolve((Path) event.context()));
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            ReloadResult result = carsService.reload();
+            RELOADS.increment();
+            onReload.accept(result);
+        } catch (RuntimeException e) {
+            FAILURES.increment();
+            onFailure.accept(e);
+        }
+    }
+
+    // file given by name is watched alone, in directory or glob any json file can be a new car file
+    private boolean isCarFile(Path path) {
+        return CarFiles.isSingleFile(carsService.getFilename())
+                ? carFiles.contains(path.toAbsolutePath().normalize())
+                : path.getFileName().toString().endsWith(JSON_EXTENSION);
+    }
+
+    private static Set<Path> carFiles(String location) {
+        Set<Path> files = new LinkedHashSet<>();
+        CarFiles.resolve(location).forEach(file -> files.add(file.toAbsolutePath().normalize()));
+        return files;
+    }
+
+    // directories with car files, and directory given as location even when it is empty
+    private static Set<Path> directories(String location, Set<Path> carFiles) {
+        Set<Path> directories = new LinkedHashSet<>();
+        carFiles.forEach(file -> directories.add(file.getParent()));
+        if (CarFiles.isDirectory(location)) {
+            directories.add(Path.of(location).toAbsolutePath().normalize());
+        }
+        return directories;
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new CarsServiceException("watch service cannot be closed: " + e.getMessage());
+        }
+    }
+}
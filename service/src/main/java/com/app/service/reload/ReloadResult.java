@@ -0,0 +1,18 @@
+package com.app.service.reload;
+
+import com.app.service.validation.ValidationReport;
+import lombok.Value;
+
+// what reload changed, version is version of published snapshot
+@Value
+public class ReloadResult {
+    int inserted;
+    int updated;
+    int deleted;
+    long version;
+    ValidationReport validationReport;
+
+    public boolean hasChanges() {
+        return inserted + updated + deleted > 0;
+    }
+}
@@ -0,0 +1,80 @@
+package com.app.service.service;
+
+import com.app.service.exception.CarsServiceException;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// json files with cars given by location, which is one file, directory with .json files
+// or glob relative to its directory, e.g. ./data/dealers/*.json or ./data/**.json for files in all subdirectories
+// files are sorted by path, so cars of many files are always read in the same order
+public final class CarFiles {
+
+    private static final String JSON_FILES = "glob:*.json";
+    private static final String GLOB_CHARS = "*?[{";
+
+    private CarFiles() {
+    }
+
+    public static List<Path> resolve(String location) {
+        if (location == null) {
+            throw new CarsServiceException("location of car files is null");
+        }
+        if (isGlob(location)) {
+            return glob(location);
+        }
+        Path path = Path.of(location);
+        if (Files.isDirectory(path)) {
+            return matching(path, FileSystems.getDefault().getPathMatcher(JSON_FILES), 1, location);
+        }
+        return List.of(path);
+    }
+
+    public static boolean isSingleFile(String location) {
+        return location != null && !isGlob(location) && !Files.isDirectory(Path.of(location));
+    }
+
+    public static boolean isDirectory(String location) {
+        return location != null && !isGlob(location) && Files.isDirectory(Path.of(location));
+    }
+
+    private static boolean isGlob(String location) {
+        return location.chars().anyMatch(c -> GLOB_CHARS.indexOf(c) >= 0);
+    }
+
+    // directory of glob is its part before first name with glob chars
+    private static List<Path> glob(String location) {
+        String[] names = location.split("[/\\\\]");
+        int first = 0;
+        while (!isGlob(names[first])) {
+            first++;
+        }
+        Path directory = first == 0 ? Path.of(".") : Path.of(String.join("/", Arrays.copyOf(names, first)));
+        String relativeGlob = String.join("/", Arrays.copyOfRange(names, first, names.length));
+        int depth = relativeGlob.contains("**") ? Integer.MAX_VALUE : names.length - first;
+        return matching(directory, FileSystems.getDefault().getPathMatcher("glob:" + relativeGlob), depth, location);
+    }
+
+    private static List<Path> matching(Path directory, PathMatcher matcher, int depth, String location) {
+        try (Stream<Path> paths = Files.walk(directory, depth)) {
+            List<Path> files = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(directory.relativize(path)))
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (files.isEmpty()) {
+                throw new CarsServiceException("there are no car files in " + location);
+            }
+            return files;
+        } catch (IOException e) {
+            throw new CarsServiceException("car files cannot be listed: " + e.getMessage());
+        }
+    }
+}
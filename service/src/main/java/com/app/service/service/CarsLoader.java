@@ -0,0 +1,147 @@
+package com.app.service.service;
+
+import com.app.persistence.converter.JsonCarsConverter;
+import com.app.persistence.exception.CarStoreException;
+import com.app.persistence.model.Car;
+import com.app.persistence.store.CarStoreSnapshot;
+import com.app.persistence.store.ColumnarCarStore;
+import com.app.persistence.store.MappedCarStore;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.parallel.ParallelExecutor;
+import com.app.service.validation.CarsValidationTask;
+import com.app.service.validation.ValidationReport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// reads cars from json file one by one and validates them in parallel batches
+// valid cars are passed to consumer in reading order, so at most one batch is kept in memory
+public final class CarsLoader {
+
+    private static final int VALIDATION_BATCH_SIZE = 16_384;
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final String COMPACTED_EXTENSION = ".compacted";
+
+    private final Consumer<? super Car> validCarConsumer;
+    private final ParallelExecutor executor;
+    private final ValidationReport validationReport = new ValidationReport();
+    private final List<Car> batch = new ArrayList<>(VALIDATION_BATCH_SIZE);
+
+    public CarsLoader(Consumer<? super Car> validCarConsumer) {
+        this(validCarConsumer, ParallelExecutor.sequential());
+    }
+
+    // batches are validated in pool of executor, or in common pool when executor has no pool
+    public CarsLoader(Consumer<? super Car> validCarConsumer, ParallelExecutor executor) {
+        if (validCarConsumer == null || executor == null) {
+            throw new CarsServiceException("valid car consumer or executor is null");
+        }
+        this.validCarConsumer = validCarConsumer;
+        this.executor = executor;
+    }
+
+    public ValidationReport load(String filename) {
+        try (Stream<Car> carStream = new JsonCarsConverter(filename).fromJsonStream()) {
+            carStream.forEach(car -> {
+                batch.add(car);
+                if (batch.size() == VALIDATION_BATCH_SIZE) {
+                    validateBatch();
+                }
+            });
+        }
+        validateBatch();
+        return validationReport;
+    }
+
+    // cars from binary snapshot of json file, if snapshot was written after json file was last modified
+    public static Optional<ColumnarCarStore> readSnapshot(String filename) {
+        try {
+            return new CarStoreSnapshot(filename + SNAPSHOT_EXTENSION, filename).read();
+        } catch (CarStoreException e) {
+            return Optional.empty();
+        }
+    }
+
+    // cars from binary snapshot of json file, decoded lazily from memory mapped file
+    public static Optional<MappedCarStore> readMappedSnapshot(String filename) {
+        try {
+            return new CarStoreSnapshot(filename + SNAPSHOT_EXTENSION, filename).readMapped();
+        } catch (CarStoreException e) {
+            return Optional.empty();
+        }
+    }
+
+    // snapshot only speeds up next start, so cars are loaded correctly even when it cannot be written
+    // returns stamp of written snapshot, empty when it was not written
+    public static OptionalLong writeSnapshot(String filename, ColumnarCarStore store) {
+        try {
+            return OptionalLong.of(new CarStoreSnapshot(filename + SNAPSHOT_EXTENSION, filename).write(store));
+        } catch (CarStoreException e) {
+            // next start reads json file again
+            return OptionalLong.empty();
+        }
+    }
+
+    // compacted cars are cars of json file together with changes made through service, written when change log
+    // is compacted, so they are kept apart from snapshot, which has only cars of json file and is read without change log
+    // with change log they are the only copy of cars, so they do not depend on json file and cannot be corrupted
+    // empty when they were not written yet
+    public static Optional<ColumnarCarStore> readCompacted(String filename) {
+        try {
+            return compacted(filename).read();
+        } catch (CarStoreException e) {
+            throw new CarsServiceException("compacted cars cannot be read: " + e.getMessage());
+        }
+    }
+
+    // base stamp is stamp of compacted cars which these ones replace, 0 for the first ones
+    // returns stamp of written compacted cars, which new change log extends
+    public static long writeCompacted(String filename, ColumnarCarStore store, long baseStamp) {
+        try {
+            return compacted(filename).write(store, baseStamp);
+        } catch (CarStoreException e) {
+            throw new CarsServiceException("compacted cars cannot be written: " + e.getMessage());
+        }
+    }
+
+    // stamp of compacted cars, which change log extends
+    public static long readCompactedStamp(String filename) {
+        try {
+            return compacted(filename).readStamp().orElseThrow(() -> new CarStoreException("THERE ARE NO COMPACTED CARS"));
+        } catch (CarStoreException e) {
+            throw new CarsServiceException("compacted cars cannot be read: " + e.getMessage());
+        }
+    }
+
+    // stamp of compacted cars which were replaced by current ones, 0 when there were none
+    public static long readCompactedBaseStamp(String filename) {
+        try {
+            return compacted(filename).readBaseStamp().orElseThrow(() -> new CarStoreException("THERE ARE NO COMPACTED CARS"));
+        } catch (CarStoreException e) {
+            throw new CarsServiceException("compacted cars cannot be read: " + e.getMessage());
+        }
+    }
+
+    private static CarStoreSnapshot compacted(String filename) {
+        return new CarStoreSnapshot(filename + COMPACTED_EXTENSION);
+    }
+
+    private void validateBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        boolean[] valid = new boolean[batch.size()];
+        long firstRecordNumber = validationReport.getValidatedRecords();
+        validationReport.merge(executor.invoke(new CarsValidationTask(batch, valid, firstRecordNumber)));
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                validCarConsumer.accept(batch.get(i));
+            }
+        }
+        batch.clear();
+    }
+}
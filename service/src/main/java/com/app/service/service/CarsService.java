@@ -1,188 +1,634 @@
 package com.app.service.service;
 
 import com.app.persistence.model.Car;
-import com.app.persistence.converter.JsonCarsConverter;
 import com.app.persistence.enums.Color;
+import com.app.persistence.exception.CarStoreException;
+import com.app.persistence.export.CarExporter;
+import com.app.persistence.export.ExportFormat;
+import com.app.persistence.metrics.Metrics;
+import com.app.persistence.store.CarChange;
+import com.app.persistence.store.CarChangeLog;
+import com.app.persistence.store.CarInterner;
+import com.app.persistence.store.ColumnarCarStore;
+import com.app.service.cache.CacheStats;
+import com.app.service.cache.QueryCache;
+import com.app.service.cube.CubeQuery;
+import com.app.service.cube.Group;
 import com.app.service.enums.SortCriterion;
 import com.app.service.exception.CarsServiceException;
+import com.app.service.index.ComponentIndex;
+import com.app.service.parallel.ParallelExecutor;
+import com.app.service.query.CarQuery;
+import com.app.service.query.QueryPlanner;
+import com.app.service.query.TopK;
+import com.app.service.reload.ReloadResult;
+import com.app.service.stats.CarStatistics;
+import com.app.service.store.CarChanges;
+import com.app.service.store.CarsDiff;
+import com.app.service.store.CarsSnapshot;
 import com.app.service.validation.CarValidator;
-import org.eclipse.collections.impl.collector.BigDecimalSummaryStatistics;
-import org.eclipse.collections.impl.collector.Collectors2;
+import com.app.service.validation.ValidationReport;
+import lombok.Value;
 
+import java.lang.ref.WeakReference;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-public class CarsService {
+// readers take current snapshot without locking and see consistent cars and indexes
+// changes are applied one at a time, each of them publishes a new snapshot
+// with change log enabled every change is logged before it is published and replayed on next start
+// with parallel executor, work over many cars is split across its dedicated pool
+// results of repeated full queries are cached until cars change, cached results are immutable
+public class CarsService implements AutoCloseable {
 
-    private final Set<Car> cars;
+    private static final String CHANGE_LOG_EXTENSION = ".log";
+    private static final int CHANGE_LOG_SYNC_EVERY = 64;
+    // log longer than this is compacted into new binary snapshot on start
+    private static final int COMPACTION_THRESHOLD = 10_000;
+
+    private final String filename;
+    private volatile ValidationReport validationReport;
+    // cars of json files as they were last read, reload applies only their changes to current cars
+    private Collection<Car> sourceCars;
+    private final CarValidator carValidator = new CarValidator();
+    // all cars of service share models, components and component sets through interner
+    private final CarInterner interner = new CarInterner();
+    private final CarChangeLog changeLog;
+    private final ParallelExecutor executor;
+    private final QueryCache cache;
+    private volatile CarsSnapshot snapshot;
 
     public CarsService (String filename){
-        this.cars = init(filename);
+        this(filename, false);
     }
 
-    private Set<Car> init(String filename) {
-        AtomicInteger counter = new AtomicInteger();
-        return new JsonCarsConverter(filename)
-                .fromJson()
-                .orElseThrow(() -> new CarsServiceException("cannot parse date in json file"))
-                .stream()
-                .filter(car -> {
-                    var carsValidator = new CarValidator();
-                    var errors = carsValidator.validate(car);
-
-                    if (carsValidator.hasErrors()) {
-                        System.out.println("---------------------- Validation error -----------------");
-                        System.out.println("---------------------- Car no. " + counter.get());
-                        System.out.println(errors
-                                .entrySet()
-                                .stream()
-                                .map(e -> e.getKey() + ": " + e.getValue())
-                                .collect(Collectors.joining("\n"))
-                        );
-                        System.out.println("---------------------------------------------------------");
+    public CarsService(String filename, boolean changeLogEnabled) {
+        this(filename, changeLogEnabled, ParallelExecutor.sequential());
+    }
+
+    // executor is owned by caller, closing service does not shut its pool down
+    public CarsService(String filename, boolean changeLogEnabled, ParallelExecutor executor) {
+        this(filename, changeLogEnabled, executor, new QueryCache());
+    }
+
+    // cache of size 0 turns caching of query results off
+    public CarsService(String filename, boolean changeLogEnabled, ParallelExecutor executor, QueryCache cache) {
+        if (executor == null || cache == null) {
+            throw new CarsServiceException("executor or cache is null");
+        }
+        this.filename = filename;
+        this.executor = executor;
+        this.cache = cache;
+        if (changeLogEnabled && !CarFiles.isSingleFile(filename)) {
+            throw new CarsServiceException("change log needs cars in one json file: " + filename);
+        }
+        LoadedCars jsonCars = load(filename);
+        this.sourceCars = jsonCars.getCars();
+        validationReport = jsonCars.getReport();
+        if (changeLogEnabled) {
+            this.changeLog = new CarChangeLog(filename + CHANGE_LOG_EXTENSION, CHANGE_LOG_SYNC_EVERY);
+            this.snapshot = loadCompacted(jsonCars);
+        } else {
+            this.changeLog = null;
+            this.snapshot = CarsSnapshot.of(jsonCars.getCars(), executor);
+        }
+        if (changeLog != null && changeLog.records() >= COMPACTION_THRESHOLD) {
+            try {
+                compact();
+            } catch (CarsServiceException e) {
+                // long change log is only replayed slower, it is compacted again on next start
+            }
+        }
+    }
+
+    // gauges of this service are named with prefix, so gauges of many services, e.g. shards, do not replace each other
+    // service registered again under the same prefix replaces the previous one; gauges do not keep it from being collected
+    public void registerGauges(String prefix) {
+        if (prefix == null) {
+            throw new CarsServiceException("gauge prefix is null");
+        }
+        WeakReference<CarsService> service = new WeakReference<>(this);
+        Metrics.gauge(prefix + "cars.count", () -> gaugeValue(service, s -> s.snapshot.getCars().size()));
+        Metrics.gauge(prefix + "cars.version", () -> gaugeValue(service, s -> s.snapshot.getVersion()));
+        Metrics.gauge(prefix + "cache.entries", () -> gaugeValue(service, s -> s.cache.stats().getEntries()));
+        Metrics.gauge(prefix + "cache.hitRate", () -> gaugeValue(service, s -> s.cache.stats().hitRate()));
+        Metrics.gauge(prefix + "changeLog.records", () -> gaugeValue(service, s -> s.changeLog == null ? 0 : s.changeLog.records()));
+    }
+
+    private static Number gaugeValue(WeakReference<CarsService> service, Function<CarsService, Number> value) {
+        CarsService carsService = service.get();
+        return carsService == null ? null : value.apply(carsService);
+    }
+
+    // location is one json file, directory or glob, see CarFiles
+    // many files are loaded in parallel, one task per file, and their cars are put together in order of files
+    private LoadedCars load(String location) {
+        List<Path> files = CarFiles.resolve(location);
+        if (files.size() == 1) {
+            return loadFile(files.get(0).toString());
+        }
+        List<LoadedCars> loadedFiles = executor.invokeAll(files, file -> loadFile(file.toString()));
+        ValidationReport report = new ValidationReport();
+        Set<Car> cars = new LinkedHashSet<>();
+        for (int i = 0; i < files.size(); i++) {
+            report.merge(files.get(i).toString(), loadedFiles.get(i).getReport());
+            cars.addAll(loadedFiles.get(i).getCars());
+        }
+        return new LoadedCars(cars, report);
+    }
+
+    // cars are read from binary snapshot when it is up to date, otherwise json file is validated
+    // and snapshot is written for next start
+    // cars are made canonical one by one while they are read, so duplicated strings and sets do not pile up
+    private LoadedCars loadFile(String filename) {
+        long start = Metrics.start();
+        Optional<ColumnarCarStore> snapshot = CarsLoader.readSnapshot(filename);
+        if (snapshot.isPresent()) {
+            List<Car> snapshotCars = canonicalCars(snapshot.get());
+            Metrics.stop("load.snapshot", start);
+            return new LoadedCars(snapshotCars, new ValidationReport());
+        }
+        Set<Car> validCars = new LinkedHashSet<>();
+        ValidationReport report = new CarsLoader(car -> validCars.add(interner.canonical(car)), executor).load(filename);
+        CarsLoader.writeSnapshot(filename, columnarStore(validCars));
+        Metrics.stop("load.json", start);
+        return new LoadedCars(validCars, report);
+    }
+
+    // with change log, compacted cars and their change log are the source of cars, they are written only by compaction
+    // and do not depend on json file; without them cars of json file are compacted at once and empty log is started,
+    // later changes of json file are applied by reload
+    // compacted cars or change log which cannot be read, or log of other compacted cars, are an error,
+    // so no logged change is dropped
+    private CarsSnapshot loadCompacted(LoadedCars jsonCars) {
+        long start = Metrics.start();
+        Optional<ColumnarCarStore> compacted = CarsLoader.readCompacted(filename);
+        if (compacted.isEmpty()) {
+            if (changeLog.exists()) {
+                throw new CarsServiceException("change log has no compacted cars: " + filename);
+            }
+            resetChangeLog(CarsLoader.writeCompacted(filename, columnarStore(jsonCars.getCars()), 0));
+            return CarsSnapshot.of(jsonCars.getCars(), executor);
+        }
+        CarsSnapshot compactedSnapshot = CarsSnapshot.of(canonicalCars(compacted.get()), executor);
+        Metrics.stop("load.compacted", start);
+        start = Metrics.start();
+        CarsSnapshot replayedSnapshot = replay(compactedSnapshot,
+                recover(CarsLoader.readCompactedStamp(filename), CarsLoader.readCompactedBaseStamp(filename)));
+        Metrics.stop("load.changeLog", start);
+        return replayedSnapshot;
+    }
+
+    private List<Car> canonicalCars(ColumnarCarStore store) {
+        List<Car> cars = new ArrayList<>(store.size());
+        for (int row = 0; row < store.size(); row++) {
+            cars.add(interner.canonical(store.car(row)));
+        }
+        return cars;
+    }
+
+    @Value
+    private static class LoadedCars {
+        Collection<Car> cars;
+        ValidationReport report;
+    }
+
+    private static ColumnarCarStore columnarStore(Collection<Car> cars) {
+        var builder = ColumnarCarStore.builder();
+        cars.forEach(builder::add);
+        return builder.build();
+    }
+
+    private List<CarChange> recover(long snapshotStamp, long baseStamp) {
+        try {
+            return changeLog.recover(snapshotStamp, baseStamp);
+        } catch (CarStoreException e) {
+            throw new CarsServiceException("change log cannot be recovered: " + e.getMessage());
+        }
+    }
+
+    private void resetChangeLog(long snapshotStamp) {
+        try {
+            changeLog.reset(snapshotStamp);
+        } catch (CarStoreException e) {
+            throw new CarsServiceException("change log cannot be reset: " + e.getMessage());
+        }
+    }
+
+    // logged changes are applied in batches, batch ends before change of car inserted in this batch
+    private CarsSnapshot replay(CarsSnapshot snapshot, List<CarChange> changes) {
+        CarsSnapshot replayed = snapshot;
+        CarChanges batch = new CarChanges();
+        for (CarChange change : changes) {
+            if (change.getCarId() >= replayed.nextCarId() && change.getType() != CarChange.Type.INSERT) {
+                replayed = replayed.apply(batch);
+                batch = new CarChanges();
+            }
+            switch (change.getType()) {
+                case INSERT -> {
+                    if (change.getCarId() != replayed.nextCarId() + batch.getInserted().size()) {
+                        throw new CarsServiceException("change log does not match snapshot, car id: " + change.getCarId());
                     }
-                    counter.incrementAndGet();
-                    return !carsValidator.hasErrors();
-                }).collect(Collectors.toSet());
+                    batch.insert(interner.canonical(change.getCar()));
+                }
+                case UPDATE -> batch.update(change.getCarId(), interner.canonical(change.getCar()));
+                case DELETE -> batch.delete(change.getCarId());
+            }
+        }
+        return replayed.apply(batch);
     }
 
+    // cars are read again from location in calling thread, and only changes of json files since they were last read
+    // are applied to current cars as one batch, so changes made through service are kept, indexes and statistics
+    // are derived from previous ones and queries use previous snapshot until new one is published
+    // with change log, changes of json file are logged like changes made through service; json file changed
+    // while service was stopped is compared with the file read at start, so these changes are not applied
+    public ReloadResult reload() {
+        long start = Metrics.start();
+        LoadedCars loadedCars = load(filename);
+        ReloadResult result;
+        synchronized (this) {
+            CarChanges changes = CarsDiff.between(snapshot, sourceCars, loadedCars.getCars());
+            CarsSnapshot reloadedSnapshot = publish(changes);
+            sourceCars = loadedCars.getCars();
+            validationReport = loadedCars.getReport();
+            result = new ReloadResult(changes.getInserted().size(), changes.getUpdated().size(),
+                    changes.getDeleted().size(), reloadedSnapshot.getVersion(), loadedCars.getReport());
+        }
+        Metrics.stop("reload", start);
+        return result;
+    }
 
-    public List<Car> sortCars(SortCriterion sortCriterion, boolean ascendingSort) {
-        if (sortCriterion == null) {
-            throw new CarsServiceException("sort criterion object is null");
+    public String getFilename() {
+        return filename;
+    }
+
+    public CarsSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // id of car returned by query of current cars, ids stay the same until compaction
+    public OptionalInt idOf(Car car) {
+        return snapshot.idOf(car);
+    }
+
+    // returns id of added car
+    public synchronized int add(Car car) {
+        int carId = snapshot.nextCarId();
+        applyChanges(new CarChanges().insert(car));
+        return carId;
+    }
+
+    public synchronized void update(int carId, Car car) {
+        applyChanges(new CarChanges().update(carId, car));
+    }
+
+    public synchronized void remove(int carId) {
+        applyChanges(new CarChanges().delete(carId));
+    }
+
+    // cars are validated and made canonical, so they share models and components with other cars of service
+    public synchronized CarsSnapshot applyChanges(CarChanges changes) {
+        if (changes == null) {
+            throw new CarsServiceException("changes object is null");
+        }
+        CarChanges validChanges = new CarChanges();
+        changes.getDeleted().forEach(validChanges::delete);
+        changes.getUpdated().forEach((carId, car) -> validChanges.update(carId, validCopy(car)));
+        changes.getInserted().forEach(car -> validChanges.insert(validCopy(car)));
+        return publish(validChanges);
+    }
+
+    // change is logged only after it was applied successfully, and published only after it was logged
+    private CarsSnapshot publish(CarChanges changes) {
+        long start = Metrics.start();
+        CarsSnapshot current = snapshot;
+        CarsSnapshot changedSnapshot = current.apply(changes);
+        if (changeLog != null) {
+            List<CarChange> logRecords = new ArrayList<>();
+            changes.getDeleted().forEach(carId -> logRecords.add(CarChange.delete(carId)));
+            changes.getUpdated().forEach((carId, car) -> logRecords.add(CarChange.update(carId, car)));
+            int carId = current.nextCarId();
+            for (Car car : changes.getInserted()) {
+                logRecords.add(CarChange.insert(carId++, car));
+            }
+            try {
+                changeLog.append(logRecords);
+            } catch (CarStoreException e) {
+                throw new CarsServiceException("change cannot be logged: " + e.getMessage());
+            }
+        }
+        snapshot = changedSnapshot;
+        Metrics.stop("change.publish", start);
+        return changedSnapshot;
+    }
+
+    // writes compacted cars, apart from binary snapshot of json file, and starts empty change log
+    // cars get new ids without gaps left by removed cars, ids given before compaction are not valid after it
+    // log is reset only after compacted cars were written, and they keep stamp of the log as their base stamp,
+    // so log left by compaction which stopped before reset is known to be compacted already
+    public synchronized CarsSnapshot compact() {
+        if (changeLog == null) {
+            throw new CarsServiceException("change log is not enabled");
+        }
+        return compact(snapshot);
+    }
+
+    private CarsSnapshot compact(CarsSnapshot current) {
+        CarsSnapshot compactedSnapshot = current.compacted();
+        resetChangeLog(CarsLoader.writeCompacted(filename, columnarStore(compactedSnapshot.getCars()),
+                changeLog.snapshotStamp()));
+        snapshot = compactedSnapshot;
+        return compactedSnapshot;
+    }
+
+    // pending records of change log are forced to disk
+    @Override
+    public synchronized void close() {
+        if (changeLog != null) {
+            try {
+                changeLog.close();
+            } catch (CarStoreException e) {
+                throw new CarsServiceException("change log cannot be closed: " + e.getMessage());
+            }
         }
-        Stream<Car> carStream = switch (sortCriterion) {
-            case COLOR -> cars.stream().sorted(Comparator.comparing(Car::getColor));
-            case MILEAGE -> cars.stream().sorted(Comparator.comparing(Car::getMileage));
-            case MODEL -> cars.stream().sorted(Comparator.comparing(Car::getModel));
-            default -> cars.stream().sorted(Comparator.comparing(Car::getPrice));
-        };
-        List<Car> sortedCars = carStream.collect(Collectors.toList());
-        if (!ascendingSort) {
-            Collections.reverse(sortedCars);
+    }
+
+    private Car validCopy(Car car) {
+        Map<String, String> errors = carValidator.validate(car);
+        if (!errors.isEmpty()) {
+            throw new CarsServiceException("car is not valid: " + errors);
         }
-        return sortedCars;
+        return interner.canonical(car);
+    }
+
+    public ValidationReport getValidationReport() {
+        return validationReport;
+    }
+
+    public List<Car> getCars() {
+        return snapshot.getCars();
+    }
+
+    public List<Car> sortCars(SortCriterion sortCriterion, boolean ascendingSort) {
+        return timed("query.sortCars", () -> {
+            if (sortCriterion == null) {
+                throw new CarsServiceException("sort criterion object is null");
+            }
+            CarsSnapshot current = snapshot;
+            return cache.get(current.getVersion(), "sortCars", List.of(sortCriterion, ascendingSort), () -> List.copyOf(current
+                    .getCarsIndex()
+                    .sorted(sortCriterion, ascendingSort)));
+        });
+    }
+
+    // one page of sorted cars: at most limit cars, skipping first offset cars
+    public List<Car> sortCars(SortCriterion sortCriterion, boolean ascendingSort, int offset, int limit) {
+        return timed("query.sortCars", () -> {
+            if (sortCriterion == null) {
+                throw new CarsServiceException("sort criterion object is null");
+            }
+            return snapshot.getCarsIndex().sorted(sortCriterion, ascendingSort, offset, limit);
+        });
     }
 
     public List<Car> greaterMileage(double mileage) {
-        if (mileage <= 0) {
-            throw new CarsServiceException("mileage value is not correct: " + mileage);
+        return timed("query.greaterMileage", () -> {
+            if (mileage <= 0) {
+                throw new CarsServiceException("mileage value is not correct: " + mileage);
+            }
+            CarsSnapshot current = snapshot;
+            return cache.get(current.getVersion(), "greaterMileage", List.of(mileage), () -> List.copyOf(current
+                    .getCarsIndex()
+                    .mileageGreaterThan(mileage)));
+        });
+    }
+
+    // one page of cars with greater mileage, in ascending mileage order
+    public List<Car> greaterMileage(double mileage, int offset, int limit) {
+        return timed("query.greaterMileage", () -> {
+            if (mileage <= 0) {
+                throw new CarsServiceException("mileage value is not correct: " + mileage);
+            }
+            return snapshot.getCarsIndex().mileageGreaterThan(mileage, offset, limit);
+        });
+    }
+
+    // cars matching all filters of query, found through index chosen by QueryPlanner
+    public List<Car> query(CarQuery query) {
+        return timed("query.query", () -> QueryPlanner.plan(snapshot, query).execute());
+    }
+
+    // only projected values of matching cars, e.g. query(carQuery, Car::getModel)
+    public <R> List<R> query(CarQuery query, Function<? super Car, ? extends R> projection) {
+        if (projection == null) {
+            throw new CarsServiceException("projection is null");
         }
-        return cars.stream()
-                .filter(c -> c.getMileage() > mileage)
+        return query(query)
+                .stream()
+                .map(projection)
                 .collect(Collectors.toList());
     }
 
+    // description of plan chosen for query, with its estimated number of rows and cost
+    public String explain(CarQuery query) {
+        return QueryPlanner.plan(snapshot, query).toString();
+    }
+
+    public CarStatistics statistics() {
+        return timed("query.statistics", () -> snapshot.statistics());
+    }
+
+    // aggregates of cars grouped by dimensions of query, computed from precomputed cube instead of cars
+    public List<Group> groupBy(CubeQuery query) {
+        return timed("query.groupBy", () -> snapshot.cube().groupBy(query));
+    }
+
+    // writes result of any query to file, chunks of cars are serialized on executor of service,
+    // e.g. export(sortCars(SortCriterion.PRICE, true), "cars.csv.gz", ExportFormat.CSV, true)
+    public long export(Collection<Car> cars, String filename, ExportFormat format, boolean gzip) {
+        return new CarExporter(format, gzip, CarExporter.DEFAULT_CHUNK_SIZE, executor.asExecutor(), 2 * executor.parallelism())
+                .export(cars, filename);
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
     public Map<Color, Long> carColors() {
-        return cars
-                .stream()
-                .collect(Collectors.groupingBy(Car::getColor, Collectors.counting()))
-                .entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (v1, v2) -> v1,
-                        LinkedHashMap::new
-                ));
+        return timed("query.carColors", () -> {
+            CarsSnapshot current = snapshot;
+            return cache.get(current.getVersion(), "carColors", List.of(), () -> Collections.unmodifiableMap(
+                    new LinkedHashMap<>(current.statistics().getColorCounts())));
+        });
     }
 
     public Map<String, List<Car>> mostExpensiveModel() {
-        return cars
-                .stream()
-                .collect(Collectors.groupingBy(Car::getModel))
-                .entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        e -> e.getValue()
-                                .stream()
-                                .collect(Collectors.groupingBy(Car::getPrice))
-                                .entrySet().stream()
-                                .max(Map.Entry.comparingByKey())
-                                .orElseThrow()
-                                .getValue()
-                ));
+        return timed("query.mostExpensiveModel", () -> {
+            CarsSnapshot current = snapshot;
+            return cache.get(current.getVersion(), "mostExpensiveModel", List.of(), () -> {
+                Map<String, List<Car>> mostExpensiveModel = new HashMap<>();
+                current.statistics().getMostExpensiveByModel().forEach((model, cars) -> mostExpensiveModel.put(model, List.copyOf(cars)));
+                return Collections.unmodifiableMap(mostExpensiveModel);
+            });
+        });
     }
 
     public String priceStats() {
         StringBuilder sb = new StringBuilder();
-        BigDecimalSummaryStatistics prices = cars
-                .stream()
-                .collect(Collectors2.summarizingBigDecimal(Car::getPrice));
-        return sb.append("Average cars price: " + prices.getAverage()).append("\n")
-                .append("The Cheapest Car: " + prices.getMin()).append("\n")
-                .append("The Most Expensive Car: " + prices.getMax()).append("\n").toString();
+        CarStatistics prices = statistics();
+        return sb.append("Average cars price: " + prices.getAveragePrice()).append("\n")
+                .append("The Cheapest Car: " + prices.getMinPrice()).append("\n")
+                .append("The Most Expensive Car: " + prices.getMaxPrice()).append("\n").toString();
     }
 
     public String mileageStats() {
         StringBuilder sb = new StringBuilder();
-        DoubleSummaryStatistics carStats = cars
-                .stream()
-                .collect(Collectors.summarizingDouble(Car::getMileage));
-        return sb.append("Average cars mileage: " + carStats.getAverage()).append("\n")
-                .append("The biggest mileage: " + carStats.getMax()).append("\n")
-                .append("The smallest mileage: " + carStats.getMin()).append("\n").toString();
+        CarStatistics carStats = statistics();
+        return sb.append("Average cars mileage: " + carStats.getAverageMileage()).append("\n")
+                .append("The biggest mileage: " + carStats.getMaxMileage()).append("\n")
+                .append("The smallest mileage: " + carStats.getMinMileage()).append("\n").toString();
     }
 
     public List<Car> mostExpensive() {
-        return cars
-                .stream()
-                .filter(c -> c.getPrice().equals(biggestPrice()))
-                .collect(Collectors.toList());
+        return timed("query.mostExpensive", () -> snapshot.getCarsIndex().withBiggestPrice());
+    }
+
+    // limit most expensive cars, from the most expensive one
+    public List<Car> mostExpensive(int limit) {
+        return timed("query.mostExpensive", () -> {
+            requirePositiveLimit(limit);
+            return snapshot.getCarsIndex().mostExpensive(limit);
+        });
+    }
+
+    // limit cars with the biggest mileage, from the one with the biggest mileage
+    public List<Car> biggestMileage(int limit) {
+        return timed("query.biggestMileage", () -> {
+            requirePositiveLimit(limit);
+            return snapshot.getCarsIndex().biggestMileage(limit);
+        });
+    }
+
+    // for every model limit most expensive cars of this model, from the most expensive one
+    public Map<String, List<Car>> mostExpensiveModel(int limit) {
+        return timed("query.mostExpensiveModel", () -> {
+            requirePositiveLimit(limit);
+            CarsSnapshot current = snapshot;
+            return cache.get(current.getVersion(), "mostExpensiveModel", List.of(limit), () -> {
+                Map<String, List<Car>> mostExpensiveModel = new HashMap<>();
+                current.getCarsIndex().getModelIndex().forEach((model, modelCars) -> mostExpensiveModel.put(model, List.copyOf(modelCars
+                        .stream()
+                        .collect(TopK.collector(limit, Comparator.comparing(Car::getPrice))))));
+                return Collections.unmodifiableMap(mostExpensiveModel);
+            });
+        });
     }
 
     public BigDecimal biggestPrice() {
-        return cars.stream()
-                .sorted(Comparator.comparing(Car::getPrice, Comparator.reverseOrder()))
-                .map(Car::getPrice)
-                .findFirst()
-                .orElseThrow();
+        return timed("query.biggestPrice", () -> snapshot
+                .getCarsIndex()
+                .biggestPrice()
+                .orElseThrow());
     }
 
     public Set<Car> inPriceRange(BigDecimal priceFrom, BigDecimal priceTo) {
-        if (priceFrom==null || priceTo == null){
-            throw new CarsServiceException("One of the argument is null");
-        }
-        if (priceTo.compareTo(priceFrom) < 0 ){
-            throw new CarsServiceException("Price to is smaller than price from");
-        }
-        return cars
-                .stream()
-                .filter(c -> c.getPrice().compareTo(priceFrom) > 0 && c.getPrice().compareTo(priceTo) < 0)
-                .sorted(Comparator.comparing(Car::getModel))
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return timed("query.inPriceRange", () -> {
+            if (priceFrom==null || priceTo == null){
+                throw new CarsServiceException("One of the argument is null");
+            }
+            if (priceTo.compareTo(priceFrom) < 0 ){
+                throw new CarsServiceException("Price to is smaller than price from");
+            }
+            CarsSnapshot current = snapshot;
+            return cache.get(current.getVersion(), "inPriceRange", List.of(priceFrom, priceTo), () -> {
+                List<Car> carsInRange = current
+                        .getCarsIndex()
+                        .priceBetween(priceFrom, priceTo);
+                return executor.execute(carsInRange.size(), () -> {
+                    executor.sort(carsInRange, Comparator.comparing(Car::getModel));
+                    return Collections.unmodifiableSet(new LinkedHashSet<>(carsInRange));
+                });
+            });
+        });
     }
 
     public Map<String, List<Car>> componentsInCars() {
-        return cars
-                .stream()
-                .flatMap(car -> car.getComponents().stream())
-                .collect(Collectors.toMap(c -> c,
-                        c -> cars.stream()
-                                .filter(car -> car.getComponents().contains(c))
-                                .collect(Collectors.toList()),
-                        (s1,s2) -> s1,
-                        LinkedHashMap::new)
-                );
-    }
-
-    public List<Car> sortComponents() {
-        return cars
-                .stream()
-                .peek(car -> car.setComponents(car.getComponents()
+        return timed("query.componentsInCars", () -> {
+            CarsSnapshot current = snapshot;
+            ComponentIndex componentIndex = current.getComponentIndex();
+            return cache.get(current.getVersion(), "componentsInCars", List.of(), () -> Collections.unmodifiableMap(componentIndex
+                    .components()
+                    .stream()
+                    .collect(Collectors.toMap(c -> c,
+                            c -> List.copyOf(current.carsWithIds(componentIndex.withComponent(c))),
+                            (s1,s2) -> s1,
+                            LinkedHashMap::new)
+                    )));
+        });
+    }
+
+    public List<Car> carsWithComponent(String component) {
+        return timed("query.carsWithComponent", () -> {
+            CarsSnapshot current = snapshot;
+            return current.carsWithIds(current.getComponentIndex().withComponent(component));
+        });
+    }
+
+    public List<Car> carsWithAllComponents(Set<String> components) {
+        return timed("query.carsWithAllComponents", () -> {
+            CarsSnapshot current = snapshot;
+            return current.carsWithIds(current.getComponentIndex().withAllComponents(components));
+        });
+    }
+
+    public List<Car> carsWithAnyComponent(Set<String> components) {
+        return timed("query.carsWithAnyComponent", () -> {
+            CarsSnapshot current = snapshot;
+            return current.carsWithIds(current.getComponentIndex().withAnyComponent(components));
+        });
+    }
+
+    // cars are replaced by copies with sorted components in one batch, readers see either all or none of them sorted
+    public synchronized List<Car> sortComponents() {
+        CarsSnapshot current = snapshot;
+        CarChanges changes = new CarChanges();
+        for (int carId = 0; carId < current.nextCarId(); carId++) {
+            if (current.contains(carId)) {
+                Car car = current.car(carId);
+                Set<String> sortedComponents = car.getComponents()
                         .stream()
                         .sorted()
-                        .collect(Collectors.toCollection(LinkedHashSet::new)))
-                )
-                .collect(Collectors.toList());
+                        .collect(Collectors.toCollection(LinkedHashSet::new));
+                changes.update(carId, car.toBuilder().components(interner.components(sortedComponents)).build());
+            }
+        }
+        return new ArrayList<>(publish(changes).getCars());
+    }
+
+    // latency of query is recorded only while metrics are enabled
+    private static <T> T timed(String latencyName, Supplier<T> query) {
+        long start = Metrics.start();
+        try {
+            return query.get();
+        } finally {
+            Metrics.stop(latencyName, start);
+        }
+    }
+
+    private static void requirePositiveLimit(int limit) {
+        if (limit <= 0) {
+            throw new CarsServiceException("limit value is not correct: " + limit);
+        }
     }
 
     @Override
     public String toString() {
-        return cars.stream()
+        return snapshot.getCars().stream()
                 .map(c -> c.getModel() + " ($" + c.getPrice() +
                         ", mileage: " + c.getMileage() +
                         ", components: " + c.getComponents())
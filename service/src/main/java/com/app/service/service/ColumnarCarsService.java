@@ -0,0 +1,315 @@
+package com.app.service.service;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.exception.CarStoreException;
+import com.app.persistence.model.Car;
+import com.app.persistence.store.CarColumns;
+import com.app.persistence.store.ColumnarCarStore;
+import com.app.persistence.store.MappedCarStore;
+import com.app.service.enums.SortCriterion;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.validation.ValidationReport;
+import org.eclipse.collections.impl.list.mutable.primitive.IntArrayList;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Collectors;
+
+// read-only variant of CarsService which runs queries over car columns, kept on heap or in memory mapped file
+// Car objects are created only for rows returned by query
+public class ColumnarCarsService {
+
+    private final CarColumns store;
+    private ValidationReport validationReport = new ValidationReport();
+
+    public ColumnarCarsService(String filename) {
+        Optional<ColumnarCarStore> snapshot = CarsLoader.readSnapshot(filename);
+        if (snapshot.isPresent()) {
+            this.store = snapshot.get();
+        } else {
+            var builder = ColumnarCarStore.builder();
+            this.validationReport = new CarsLoader(builder::add).load(filename);
+            ColumnarCarStore loadedStore = builder.build();
+            CarsLoader.writeSnapshot(filename, loadedStore);
+            this.store = loadedStore;
+        }
+    }
+
+    public ColumnarCarsService(CarColumns store) {
+        if (store == null) {
+            throw new CarsServiceException("car store is null");
+        }
+        this.store = store;
+    }
+
+    // columns are read from memory mapped snapshot of json file, snapshot is written first when it is out of date
+    public static ColumnarCarsService mapped(String filename) {
+        Optional<MappedCarStore> snapshot = CarsLoader.readMappedSnapshot(filename);
+        if (snapshot.isPresent()) {
+            return new ColumnarCarsService(snapshot.get());
+        }
+        var carsService = new ColumnarCarsService(filename);
+        return CarsLoader
+                .readMappedSnapshot(filename)
+                .map(mappedStore -> {
+                    var mappedCarsService = new ColumnarCarsService(mappedStore);
+                    mappedCarsService.validationReport = carsService.validationReport;
+                    return mappedCarsService;
+                })
+                .orElse(carsService);
+    }
+
+    public ValidationReport getValidationReport() {
+        return validationReport;
+    }
+
+    public List<Car> sortCars(SortCriterion sortCriterion, boolean ascendingSort) {
+        if (sortCriterion == null) {
+            throw new CarsServiceException("sort criterion object is null");
+        }
+        IntBinaryOperator rowComparator = switch (sortCriterion) {
+            case COLOR -> (r1, r2) -> Integer.compare(store.colorOrdinal(r1), store.colorOrdinal(r2));
+            case MILEAGE -> (r1, r2) -> Double.compare(store.mileage(r1), store.mileage(r2));
+            case MODEL -> (r1, r2) -> store.model(r1).compareTo(store.model(r2));
+            default -> store::comparePrices;
+        };
+        int[] rows = allRows();
+        sortRows(rows, ascendingSort ? rowComparator : (r1, r2) -> rowComparator.applyAsInt(r2, r1));
+        return cars(rows);
+    }
+
+    public List<Car> greaterMileage(double mileage) {
+        if (mileage <= 0) {
+            throw new CarsServiceException("mileage value is not correct: " + mileage);
+        }
+        IntArrayList rows = new IntArrayList();
+        for (int row = 0; row < store.size(); row++) {
+            if (store.mileage(row) > mileage) {
+                rows.add(row);
+            }
+        }
+        return cars(rows.toArray());
+    }
+
+    public Map<Color, Long> carColors() {
+        long[] counts = new long[Color.values().length];
+        for (int row = 0; row < store.size(); row++) {
+            counts[store.colorOrdinal(row)]++;
+        }
+        return Arrays.stream(Color.values())
+                .filter(color -> counts[color.ordinal()] > 0)
+                .sorted(Comparator.comparingLong((Color color) -> counts[color.ordinal()]).reversed())
+                .collect(Collectors.toMap(
+                        color -> color,
+                        color -> counts[color.ordinal()],
+                        (v1, v2) -> v1,
+                        LinkedHashMap::new
+                ));
+    }
+
+    public Map<String, List<Car>> mostExpensiveModel() {
+        int models = store.getModelDictionary().size();
+        int[] maxPriceRows = new int[models];
+        Arrays.fill(maxPriceRows, -1);
+        for (int row = 0; row < store.size(); row++) {
+            int modelId = store.modelId(row);
+            if (maxPriceRows[modelId] < 0 || store.comparePrices(row, maxPriceRows[modelId]) > 0) {
+                maxPriceRows[modelId] = row;
+            }
+        }
+        Map<String, List<Car>> mostExpensiveModel = new HashMap<>();
+        for (int row = 0; row < store.size(); row++) {
+            if (store.comparePrices(row, maxPriceRows[store.modelId(row)]) == 0) {
+                mostExpensiveModel.computeIfAbsent(store.model(row), m -> new ArrayList<>()).add(store.car(row));
+            }
+        }
+        return mostExpensiveModel;
+    }
+
+    public String priceStats() {
+        if (store.size() == 0) {
+            throw new CarsServiceException("there are no cars");
+        }
+        // prices in whole cents are added as long cents, only other prices are added as BigDecimal
+        long centsSum = 0;
+        BigDecimal otherSum = BigDecimal.ZERO;
+        int minRow = 0;
+        int maxRow = 0;
+        for (int row = 0; row < store.size(); row++) {
+            if (store.hasWholeCentsPrice(row)) {
+                centsSum += store.priceCents(row);
+            } else {
+                otherSum = otherSum.add(store.price(row));
+            }
+            if (store.comparePrices(row, minRow) < 0) {
+                minRow = row;
+            }
+            if (store.comparePrices(row, maxRow) > 0) {
+                maxRow = row;
+            }
+        }
+        BigDecimal average = BigDecimal.valueOf(centsSum, 2)
+                .add(otherSum)
+                .divide(BigDecimal.valueOf(store.size()), MathContext.DECIMAL128);
+        StringBuilder sb = new StringBuilder();
+        return sb.append("Average cars price: " + average.stripTrailingZeros().toPlainString()).append("\n")
+                .append("The Cheapest Car: " + store.price(minRow)).append("\n")
+                .append("The Most Expensive Car: " + store.price(maxRow)).append("\n").toString();
+    }
+
+    public String mileageStats() {
+        DoubleSummaryStatistics carStats = new DoubleSummaryStatistics();
+        for (int row = 0; row < store.size(); row++) {
+            carStats.accept(store.mileage(row));
+        }
+        StringBuilder sb = new StringBuilder();
+        return sb.append("Average cars mileage: " + carStats.getAverage()).append("\n")
+                .append("The biggest mileage: " + carStats.getMax()).append("\n")
+                .append("The smallest mileage: " + carStats.getMin()).append("\n").toString();
+    }
+
+    public List<Car> mostExpensive() {
+        IntArrayList rows = new IntArrayList();
+        for (int row = 0; row < store.size(); row++) {
+            int comparison = rows.isEmpty() ? 0 : store.comparePrices(row, rows.get(0));
+            if (comparison > 0) {
+                rows.clear();
+            }
+            if (comparison >= 0) {
+                rows.add(row);
+            }
+        }
+        return cars(rows.toArray());
+    }
+
+    public BigDecimal biggestPrice() {
+        if (store.size() == 0) {
+            throw new NoSuchElementException("No value present");
+        }
+        int maxRow = 0;
+        for (int row = 1; row < store.size(); row++) {
+            if (store.comparePrices(row, maxRow) > 0) {
+                maxRow = row;
+            }
+        }
+        return store.price(maxRow);
+    }
+
+    public Set<Car> inPriceRange(BigDecimal priceFrom, BigDecimal priceTo) {
+        if (priceFrom==null || priceTo == null){
+            throw new CarsServiceException("One of the argument is null");
+        }
+        if (priceTo.compareTo(priceFrom) < 0 ){
+            throw new CarsServiceException("Price to is smaller than price from");
+        }
+        // cents of range are rounded like cents of prices, exact prices are compared only for rows
+        // whose cents are equal to cents of bounds
+        long fromCents = boundCents(priceFrom);
+        long toCents = boundCents(priceTo);
+        IntArrayList rows = new IntArrayList();
+        for (int row = 0; row < store.size(); row++) {
+            long priceCents = store.priceCents(row);
+            if (priceCents >= fromCents && priceCents <= toCents
+                    && (priceCents != fromCents || store.comparePrice(row, priceFrom, fromCents) > 0)
+                    && (priceCents != toCents || store.comparePrice(row, priceTo, toCents) < 0)) {
+                rows.add(row);
+            }
+        }
+        int[] sortedRows = rows.toArray();
+        sortRows(sortedRows, (r1, r2) -> store.model(r1).compareTo(store.model(r2)));
+        return new LinkedHashSet<>(cars(sortedRows));
+    }
+
+    public Map<String, List<Car>> componentsInCars() {
+        int components = store.getComponentDictionary().size();
+        IntArrayList[] rowsByComponent = new IntArrayList[components];
+        for (int row = 0; row < store.size(); row++) {
+            for (int position = 0; position < store.componentsCount(row); position++) {
+                int componentId = store.componentId(row, position);
+                if (rowsByComponent[componentId] == null) {
+                    rowsByComponent[componentId] = new IntArrayList();
+                }
+                rowsByComponent[componentId].add(row);
+            }
+        }
+        // every car is created once, even if it has many components
+        Car[] cars = new Car[store.size()];
+        Map<String, List<Car>> componentsInCars = new LinkedHashMap<>();
+        for (int componentId = 0; componentId < components; componentId++) {
+            List<Car> carsWithComponent = new ArrayList<>(rowsByComponent[componentId].size());
+            rowsByComponent[componentId].forEach(row -> {
+                if (cars[row] == null) {
+                    cars[row] = store.car(row);
+                }
+                carsWithComponent.add(cars[row]);
+            });
+            componentsInCars.put(store.getComponentDictionary().decode(componentId), carsWithComponent);
+        }
+        return componentsInCars;
+    }
+
+    // price out of range of cents is bounded by the smallest or biggest cents, which keeps order of prices
+    private static long boundCents(BigDecimal price) {
+        try {
+            return ColumnarCarStore.toCents(price);
+        } catch (CarStoreException e) {
+            return price.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private int[] allRows() {
+        int[] rows = new int[store.size()];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        return rows;
+    }
+
+    private List<Car> cars(int[] rows) {
+        List<Car> cars = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            cars.add(store.car(row));
+        }
+        return cars;
+    }
+
+    // stable merge sort of row numbers, so rows are not boxed
+    private static void sortRows(int[] rows, IntBinaryOperator rowComparator) {
+        int[] buffer = new int[rows.length];
+        for (int width = 1; width < rows.length; width *= 2) {
+            for (int from = 0; from < rows.length - width; from += 2 * width) {
+                int middle = from + width;
+                int to = Math.min(from + 2 * width, rows.length);
+                int left = from;
+                int right = middle;
+                int i = from;
+                while (left < middle && right < to) {
+                    buffer[i++] = rowComparator.applyAsInt(rows[left], rows[right]) <= 0 ? rows[left++] : rows[right++];
+                }
+                while (left < middle) {
+                    buffer[i++] = rows[left++];
+                }
+                while (right < to) {
+                    buffer[i++] = rows[right++];
+                }
+                System.arraycopy(buffer, from, rows, from, to - from);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < store.size(); row++) {
+            if (row > 0) {
+                sb.append("\n");
+            }
+            sb.append(store.model(row)).append(" ($").append(store.price(row))
+                    .append(", mileage: ").append(store.mileage(row))
+                    .append(", components: ").append(store.components(row));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.app.service.service;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.app.service.enums.SortCriterion;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.index.CarsIndex;
+import com.app.service.parallel.ParallelExecutor;
+import com.app.service.query.CarQuery;
+import com.app.service.stats.CarStatistics;
+import com.app.service.validation.ValidationReport;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// cars of many json files kept in separate shards, one CarsService for every file
+// shards are loaded in parallel, queries are scattered across shards in parallel and their results are gathered:
+// sorted results are merged, so every shard gives only first offset + limit cars of its own sorted result
+// CarsService given the same location puts cars of all files into one store instead
+// gauges of shard i, whose cars are in file i of getFiles(), are named with prefix "shard.i."
+public class ShardedCarsService implements AutoCloseable {
+
+    private final List<Path> files;
+    private final List<CarsService> shards;
+    private final ParallelExecutor executor;
+    private final ValidationReport validationReport = new ValidationReport();
+
+    public ShardedCarsService(String location) {
+        this(location, ParallelExecutor.sequential());
+    }
+
+    // executor is owned by caller and shared by all shards
+    public ShardedCarsService(String location, ParallelExecutor executor) {
+        if (executor == null) {
+            throw new CarsServiceException("executor is null");
+        }
+        this.executor = executor;
+        this.files = CarFiles.resolve(location);
+        this.shards = List.copyOf(executor.invokeAll(files, file -> new CarsService(file.toString(), false, executor)));
+        for (int i = 0; i < shards.size(); i++) {
+            validationReport.merge(files.get(i).toString(), shards.get(i).getValidationReport());
+            shards.get(i).registerGauges("shard." + i + ".");
+        }
+    }
+
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    public List<CarsService> getShards() {
+        return shards;
+    }
+
+    public ValidationReport getValidationReport() {
+        return validationReport;
+    }
+
+    public List<Car> getCars() {
+        return concat(scatter(CarsService::getCars));
+    }
+
+    public List<Car> query(CarQuery query) {
+        if (query == null) {
+            throw new CarsServiceException("query is null");
+        }
+        CarQuery shardQuery = query.withPage(0, resultsNeeded(query.getOffset(), query.getLimit()));
+        List<List<Car>> results = scatter(shard -> shard.query(shardQuery));
+        if (query.getSortCriterion().isEmpty()) {
+            return page(concat(results), query.getOffset(), query.getLimit());
+        }
+        Comparator<Car> order = order(query.getSortCriterion().get(), query.isAscending());
+        return merge(results, order, query.getOffset(), query.getLimit());
+    }
+
+    // one page of sorted cars of all shards
+    public List<Car> sortCars(SortCriterion sortCriterion, boolean ascendingSort, int offset, int limit) {
+        if (sortCriterion == null) {
+            throw new CarsServiceException("sort criterion object is null");
+        }
+        int shardLimit = resultsNeeded(offset, limit);
+        List<List<Car>> results = scatter(shard -> shard.sortCars(sortCriterion, ascendingSort, 0, shardLimit));
+        return merge(results, order(sortCriterion, ascendingSort), offset, limit);
+    }
+
+    public List<Car> mostExpensive(int limit) {
+        return merge(scatter(shard -> shard.mostExpensive(limit)), order(SortCriterion.PRICE, false), 0, limit);
+    }
+
+    public List<Car> biggestMileage(int limit) {
+        return merge(scatter(shard -> shard.biggestMileage(limit)), order(SortCriterion.MILEAGE, false), 0, limit);
+    }
+
+    // colors sorted by number of cars, from the most popular one
+    public Map<Color, Long> carColors() {
+        Map<Color, Long> colorCounts = new EnumMap<>(Color.class);
+        scatter(CarsService::carColors).forEach(shardCounts -> shardCounts.forEach((color, count) -> colorCounts.merge(color, count, Long::sum)));
+        return colorCounts
+                .entrySet()
+                .stream()
+                .sorted(Map.Entry.<Color, Long>comparingByValue().reversed())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (v1, v2) -> v1, LinkedHashMap::new));
+    }
+
+    public CarStatistics statistics() {
+        return CarStatistics.merge(scatter(CarsService::statistics));
+    }
+
+    public List<Car> carsWithComponent(String component) {
+        return concat(scatter(shard -> shard.carsWithComponent(component)));
+    }
+
+    @Override
+    public void close() {
+        shards.forEach(CarsService::close);
+    }
+
+    private <R> List<R> scatter(Function<CarsService, R> query) {
+        return executor.invokeAll(shards, query);
+    }
+
+    private static Comparator<Car> order(SortCriterion sortCriterion, boolean ascending) {
+        Comparator<Car> order = CarsIndex.order(sortCriterion);
+        return ascending ? order : order.reversed();
+    }
+
+    private static int resultsNeeded(int offset, int limit) {
+        if (offset < 0) {
+            throw new CarsServiceException("offset value is not correct: " + offset);
+        }
+        if (limit <= 0) {
+            throw new CarsServiceException("limit value is not correct: " + limit);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+    }
+
+    private static List<Car> concat(List<List<Car>> results) {
+        List<Car> cars = new ArrayList<>(results.stream().mapToInt(List::size).sum());
+        results.forEach(cars::addAll);
+        return cars;
+    }
+
+    private static List<Car> page(List<Car> cars, int offset, int limit) {
+        int from = Math.min(offset, cars.size());
+        int to = (int) Math.min(cars.size(), (long) from + limit);
+        return new ArrayList<>(cars.subList(from, to));
+    }
+
+    // k-way merge of sorted results, cars equal in order come in order of shards
+    private static List<Car> merge(List<List<Car>> results, Comparator<Car> order, int offset, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> {
+            int comparison = order.compare(results.get(a[0]).get(a[1]), results.get(b[0]).get(b[1]));
+            return comparison != 0 ? comparison : Integer.compare(a[0], b[0]);
+        });
+        for (int shard = 0; shard < results.size(); shard++) {
+            if (!results.get(shard).isEmpty()) {
+                heads.add(new int[]{shard, 0});
+            }
+        }
+        List<Car> merged = new ArrayList<>();
+        long skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<Car> shardResult = results.get(head[0]);
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                merged.add(shardResult.get(head[1]));
+            }
+            if (head[1] + 1 < shardResult.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+}
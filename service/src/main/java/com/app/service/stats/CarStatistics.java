@@ -0,0 +1,344 @@
+package com.app.service.stats;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.index.CarsIndex;
+import org.eclipse.collections.impl.list.mutable.primitive.DoubleArrayList;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+// summaries of cars computed in one pass
+// partial results of Accumulator can be combined, so statistics can be collected by parallel stream
+// statistics are immutable, after cars change sums and counts are updated from changed cars only,
+// sorted values are merged with values of changed cars and histograms are built again, both in O(n)
+// mileage sum is not updated, it is summed from sorted mileages, so it does not drift after many changes
+public final class CarStatistics {
+
+    public static final int HISTOGRAM_BUCKETS = 10;
+
+    private final long count;
+    private final BigDecimal priceSum;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final double mileageSum;
+    private final long[] colorCounts;
+    private final Map<String, List<Car>> mostExpensiveByModel;
+    private final double[] sortedPrices;
+    private final double[] sortedMileages;
+    private final Histogram priceHistogram;
+    private final Histogram mileageHistogram;
+
+    private CarStatistics(Accumulator accumulator) {
+        this(accumulator.count,
+                accumulator.priceSum,
+                accumulator.minPrice,
+                accumulator.maxPrice,
+                accumulator.colorCounts,
+                accumulator.mostExpensiveByModel,
+                accumulator.prices.sortThis().toArray(),
+                accumulator.mileages.sortThis().toArray());
+    }
+
+    private CarStatistics(long count, BigDecimal priceSum, BigDecimal minPrice, BigDecimal maxPrice,
+                          long[] colorCounts, Map<String, List<Car>> mostExpensiveByModel,
+                          double[] sortedPrices, double[] sortedMileages) {
+        this.count = count;
+        this.priceSum = priceSum;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.mileageSum = sum(sortedMileages);
+        this.colorCounts = colorCounts;
+        this.mostExpensiveByModel = mostExpensiveByModel;
+        this.sortedPrices = sortedPrices;
+        this.sortedMileages = sortedMileages;
+        this.priceHistogram = Histogram.of(sortedPrices, HISTOGRAM_BUCKETS);
+        this.mileageHistogram = Histogram.of(sortedMileages, HISTOGRAM_BUCKETS);
+    }
+
+    // compensated sum in sorted order, the same cars give the same sum however statistics were built
+    private static double sum(double[] sortedValues) {
+        double sum = 0.0;
+        double compensation = 0.0;
+        for (double value : sortedValues) {
+            double y = value - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+        }
+        return sum;
+    }
+
+    public static Collector<Car, Accumulator, CarStatistics> collector() {
+        return Collector.of(Accumulator::new, Accumulator::accept, Accumulator::combine, CarStatistics::new);
+    }
+
+    // statistics after removed cars were taken away and added cars were put in
+    // index has to contain cars after the change, it gives new extremes and most expensive cars
+    // of models which lost their most expensive car
+    public CarStatistics withChanges(Collection<Car> removed, Collection<Car> added, CarsIndex index) {
+        BigDecimal changedPriceSum = priceSum;
+        long[] changedColorCounts = Arrays.copyOf(colorCounts, colorCounts.length);
+        Map<String, List<Car>> changedMostExpensiveByModel = new HashMap<>(mostExpensiveByModel);
+        Set<String> modelsToRecompute = new HashSet<>();
+        for (Car car : removed) {
+            changedPriceSum = changedPriceSum.subtract(car.getPrice());
+            changedColorCounts[car.getColor().ordinal()]--;
+            List<Car> mostExpensive = mostExpensiveByModel.get(car.getModel());
+            if (mostExpensive != null && mostExpensive.stream().anyMatch(c -> c == car)) {
+                modelsToRecompute.add(car.getModel());
+            }
+        }
+        for (Car car : added) {
+            changedPriceSum = changedPriceSum.add(car.getPrice());
+            changedColorCounts[car.getColor().ordinal()]++;
+            if (!modelsToRecompute.contains(car.getModel())) {
+                addMostExpensive(changedMostExpensiveByModel, car.getModel(), List.of(car));
+            }
+        }
+        for (String model : modelsToRecompute) {
+            List<Car> modelCars = index.withModel(model);
+            Optional<BigDecimal> modelMaxPrice = modelCars.stream().map(Car::getPrice).max(Comparator.naturalOrder());
+            if (modelMaxPrice.isPresent()) {
+                changedMostExpensiveByModel.put(model, modelCars
+                        .stream()
+                        .filter(car -> car.getPrice().compareTo(modelMaxPrice.get()) == 0)
+                        .collect(Collectors.toList()));
+            } else {
+                changedMostExpensiveByModel.remove(model);
+            }
+        }
+        return new CarStatistics(
+                count - removed.size() + added.size(),
+                changedPriceSum,
+                index.smallestPrice().orElse(null),
+                index.biggestPrice().orElse(null),
+                changedColorCounts,
+                changedMostExpensiveByModel,
+                merge(sortedPrices, removed, added, car -> car.getPrice().doubleValue()),
+                merge(sortedMileages, removed, added, Car::getMileage));
+    }
+
+    // statistics of all cars of shards, computed from statistics of every shard without visiting cars again
+    public static CarStatistics merge(Collection<CarStatistics> shards) {
+        long count = 0;
+        BigDecimal priceSum = BigDecimal.ZERO;
+        BigDecimal minPrice = null;
+        BigDecimal maxPrice = null;
+        long[] colorCounts = new long[Color.values().length];
+        Map<String, List<Car>> mostExpensiveByModel = new HashMap<>();
+        double[] sortedPrices = new double[0];
+        double[] sortedMileages = new double[0];
+        for (CarStatistics shard : shards) {
+            count += shard.count;
+            priceSum = priceSum.add(shard.priceSum);
+            if (shard.count > 0) {
+                minPrice = minPrice == null || shard.minPrice.compareTo(minPrice) < 0 ? shard.minPrice : minPrice;
+                maxPrice = maxPrice == null || shard.maxPrice.compareTo(maxPrice) > 0 ? shard.maxPrice : maxPrice;
+            }
+            for (int i = 0; i < colorCounts.length; i++) {
+                colorCounts[i] += shard.colorCounts[i];
+            }
+            shard.mostExpensiveByModel.forEach((model, cars) -> addMostExpensive(mostExpensiveByModel, model, cars));
+            sortedPrices = mergeSorted(sortedPrices, shard.sortedPrices);
+            sortedMileages = mergeSorted(sortedMileages, shard.sortedMileages);
+        }
+        return new CarStatistics(count, priceSum, minPrice, maxPrice, colorCounts, mostExpensiveByModel,
+                sortedPrices, sortedMileages);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public BigDecimal getAveragePrice() {
+        requireCars();
+        return priceSum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+    }
+
+    public BigDecimal getMinPrice() {
+        requireCars();
+        return minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        requireCars();
+        return maxPrice;
+    }
+
+    // the same values as DoubleSummaryStatistics gives, also for no cars
+    public double getAverageMileage() {
+        return count == 0 ? 0.0 : mileageSum / count;
+    }
+
+    public double getMinMileage() {
+        return count == 0 ? Double.POSITIVE_INFINITY : sortedMileages[0];
+    }
+
+    public double getMaxMileage() {
+        return count == 0 ? Double.NEGATIVE_INFINITY : sortedMileages[sortedMileages.length - 1];
+    }
+
+    // colors sorted by number of cars, from the most popular one
+    public Map<Color, Long> getColorCounts() {
+        return Arrays.stream(Color.values())
+                .filter(color -> colorCounts[color.ordinal()] > 0)
+                .sorted(Comparator.comparingLong((Color color) -> colorCounts[color.ordinal()]).reversed())
+                .collect(Collectors.toMap(
+                        color -> color,
+                        color -> colorCounts[color.ordinal()],
+                        (v1, v2) -> v1,
+                        LinkedHashMap::new
+                ));
+    }
+
+    public Map<String, List<Car>> getMostExpensiveByModel() {
+        return Collections.unmodifiableMap(mostExpensiveByModel);
+    }
+
+    // nearest-rank percentile, percentile has to be in range (0, 100]
+    public double pricePercentile(double percentile) {
+        return percentile(sortedPrices, percentile);
+    }
+
+    public double mileagePercentile(double percentile) {
+        return percentile(sortedMileages, percentile);
+    }
+
+    public Histogram getPriceHistogram() {
+        return priceHistogram;
+    }
+
+    public Histogram getMileageHistogram() {
+        return mileageHistogram;
+    }
+
+    private void requireCars() {
+        if (count == 0) {
+            throw new CarsServiceException("there are no cars");
+        }
+    }
+
+    private static double percentile(double[] sortedValues, double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new CarsServiceException("percentile value is not correct: " + percentile);
+        }
+        if (sortedValues.length == 0) {
+            throw new CarsServiceException("there are no cars");
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
+    // lists of changed statistics are shared with this statistics, so they are copied instead of changed
+    private static void addMostExpensive(Map<String, List<Car>> mostExpensiveByModel, String model, List<Car> cars) {
+        List<Car> current = mostExpensiveByModel.get(model);
+        int comparison = current == null ? 1 : cars.get(0).getPrice().compareTo(current.get(0).getPrice());
+        if (comparison > 0) {
+            mostExpensiveByModel.put(model, new ArrayList<>(cars));
+        } else if (comparison == 0) {
+            List<Car> mostExpensive = new ArrayList<>(current);
+            mostExpensive.addAll(cars);
+            mostExpensiveByModel.put(model, mostExpensive);
+        }
+    }
+
+    // sorted values without values of removed cars and with values of added cars
+    private static double[] merge(double[] sortedValues, Collection<Car> removed, Collection<Car> added,
+                                  ToDoubleFunction<Car> value) {
+        double[] removedValues = removed.stream().mapToDouble(value).sorted().toArray();
+        double[] addedValues = added.stream().mapToDouble(value).sorted().toArray();
+        double[] merged = new double[sortedValues.length - removedValues.length + addedValues.length];
+        int i = 0;
+        int r = 0;
+        int a = 0;
+        int k = 0;
+        while (i < sortedValues.length || a < addedValues.length) {
+            if (i < sortedValues.length && r < removedValues.length && Double.compare(sortedValues[i], removedValues[r]) == 0) {
+                i++;
+                r++;
+            } else if (i < sortedValues.length && r < removedValues.length && Double.compare(sortedValues[i], removedValues[r]) > 0) {
+                throw new CarsServiceException("removed cars are not in statistics");
+            } else if (a == addedValues.length || (i < sortedValues.length && Double.compare(sortedValues[i], addedValues[a]) <= 0)) {
+                merged[k++] = sortedValues[i++];
+            } else {
+                merged[k++] = addedValues[a++];
+            }
+        }
+        return merged;
+    }
+
+    private static double[] mergeSorted(double[] first, double[] second) {
+        double[] merged = new double[first.length + second.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < first.length || j < second.length) {
+            if (j == second.length || (i < first.length && Double.compare(first[i], second[j]) <= 0)) {
+                merged[k++] = first[i++];
+            } else {
+                merged[k++] = second[j++];
+            }
+        }
+        return merged;
+    }
+
+    public static final class Accumulator {
+
+        private long count;
+        private BigDecimal priceSum = BigDecimal.ZERO;
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private final long[] colorCounts = new long[Color.values().length];
+        private final Map<String, List<Car>> mostExpensiveByModel = new HashMap<>();
+        private final DoubleArrayList prices = new DoubleArrayList();
+        private final DoubleArrayList mileages = new DoubleArrayList();
+
+        private Accumulator() {
+        }
+
+        public void accept(Car car) {
+            BigDecimal price = car.getPrice();
+            count++;
+            priceSum = priceSum.add(price);
+            minPrice = minPrice == null || price.compareTo(minPrice) < 0 ? price : minPrice;
+            maxPrice = maxPrice == null || price.compareTo(maxPrice) > 0 ? price : maxPrice;
+            colorCounts[car.getColor().ordinal()]++;
+            addMostExpensive(car.getModel(), List.of(car));
+            prices.add(price.doubleValue());
+            mileages.add(car.getMileage());
+        }
+
+        public Accumulator combine(Accumulator other) {
+            count += other.count;
+            priceSum = priceSum.add(other.priceSum);
+            if (other.minPrice != null) {
+                minPrice = minPrice == null || other.minPrice.compareTo(minPrice) < 0 ? other.minPrice : minPrice;
+                maxPrice = maxPrice == null || other.maxPrice.compareTo(maxPrice) > 0 ? other.maxPrice : maxPrice;
+            }
+            for (int i = 0; i < colorCounts.length; i++) {
+                colorCounts[i] += other.colorCounts[i];
+            }
+            other.mostExpensiveByModel.forEach(this::addMostExpensive);
+            prices.addAll(other.prices);
+            mileages.addAll(other.mileages);
+            return this;
+        }
+
+        // all cars given have the same price
+        private void addMostExpensive(String model, List<Car> cars) {
+            List<Car> current = mostExpensiveByModel.get(model);
+            int comparison = current == null ? 1 : cars.get(0).getPrice().compareTo(current.get(0).getPrice());
+            if (comparison > 0) {
+                mostExpensiveByModel.put(model, new ArrayList<>(cars));
+            } else if (comparison == 0) {
+                current.addAll(cars);
+            }
+        }
+    }
+}
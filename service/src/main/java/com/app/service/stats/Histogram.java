@@ -0,0 +1,58 @@
+package com.app.service.stats;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// equal width buckets between min and max value, max value belongs to the last bucket
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Histogram {
+
+    private final double min;
+    private final double max;
+    @Getter(AccessLevel.NONE)
+    private final long[] counts;
+
+    // values have to be sorted in ascending order
+    static Histogram of(double[] sortedValues, int buckets) {
+        long[] counts = new long[sortedValues.length == 0 ? 0 : buckets];
+        if (sortedValues.length == 0) {
+            return new Histogram(Double.NaN, Double.NaN, counts);
+        }
+        double min = sortedValues[0];
+        double max = sortedValues[sortedValues.length - 1];
+        double width = (max - min) / buckets;
+        for (double value : sortedValues) {
+            int bucket = width == 0 ? 0 : (int) ((value - min) / width);
+            counts[Math.min(bucket, buckets - 1)]++;
+        }
+        return new Histogram(min, max, counts);
+    }
+
+    public int getBucketsCount() {
+        return counts.length;
+    }
+
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    public double getBucketFrom(int bucket) {
+        return min + (max - min) * bucket / counts.length;
+    }
+
+    public double getBucketTo(int bucket) {
+        return bucket == counts.length - 1 ? max : getBucketFrom(bucket + 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            sb.append(String.format("[%.2f - %.2f]: %d", getBucketFrom(bucket), getBucketTo(bucket), counts[bucket]))
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.app.service.store;
+
+import com.app.persistence.model.Car;
+import com.app.service.exception.CarsServiceException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// batch of changes applied to cars at once, so indexes and statistics are updated once per batch
+// inserted cars get ids after ids of all existing cars, in order of insertion
+public final class CarChanges {
+
+    private final List<Car> inserted = new ArrayList<>();
+    private final Map<Integer, Car> updated = new LinkedHashMap<>();
+    private final Set<Integer> deleted = new LinkedHashSet<>();
+
+    public CarChanges insert(Car car) {
+        inserted.add(requireCar(car));
+        return this;
+    }
+
+    public CarChanges update(int carId, Car car) {
+        if (deleted.contains(carId)) {
+            throw new CarsServiceException("car is already deleted: " + carId);
+        }
+        updated.put(carId, requireCar(car));
+        return this;
+    }
+
+    // deleting car drops its earlier update
+    public CarChanges delete(int carId) {
+        updated.remove(carId);
+        deleted.add(carId);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+    }
+
+    public List<Car> getInserted() {
+        return Collections.unmodifiableList(inserted);
+    }
+
+    public Map<Integer, Car> getUpdated() {
+        return Collections.unmodifiableMap(updated);
+    }
+
+    public Set<Integer> getDeleted() {
+        return Collections.unmodifiableSet(deleted);
+    }
+
+    private static Car requireCar(Car car) {
+        if (car == null) {
+            throw new CarsServiceException("car object is null");
+        }
+        return car;
+    }
+}
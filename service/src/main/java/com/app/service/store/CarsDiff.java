@@ -0,0 +1,110 @@
+package com.app.service.store;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.model.Car;
+import lombok.Value;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// changes of cars read from file between two versions of the file, turned into changes of current cars of snapshot,
+// which can have changes made through service since the file was read before, and these are kept
+// cars have no id, so removed car and added car with the same model, color and components are taken
+// as the same car whose price or mileage changed, and become update; other removed cars are deleted
+// and other added cars are inserted
+// removed car which is not in snapshot any more, because it was changed or removed through service, is not touched,
+// and its new version from file is inserted
+public final class CarsDiff {
+
+    private CarsDiff() {
+    }
+
+    public static CarChanges between(CarsSnapshot snapshot, Collection<Car> before, Collection<Car> after) {
+        Map<Car, Integer> remaining = new HashMap<>();
+        before.forEach(car -> remaining.merge(car, 1, Integer::sum));
+        List<Car> added = new ArrayList<>();
+        for (Car car : after) {
+            if (!take(remaining, car)) {
+                added.add(car);
+            }
+        }
+        List<Car> removed = new ArrayList<>();
+        for (Car car : before) {
+            if (take(remaining, car)) {
+                removed.add(car);
+            }
+        }
+
+        Map<CarIdentity, Deque<Car>> addedByIdentity = new HashMap<>();
+        added.forEach(car -> addedByIdentity.computeIfAbsent(CarIdentity.of(car), identity -> new ArrayDeque<>()).add(car));
+        Map<Car, Deque<Integer>> currentIds = currentIds(snapshot, new HashSet<>(removed));
+        Set<Car> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        CarChanges changes = new CarChanges();
+        for (Car car : removed) {
+            Deque<Car> newVersions = addedByIdentity.get(CarIdentity.of(car));
+            Car newVersion = newVersions == null ? null : newVersions.poll();
+            Deque<Integer> ids = currentIds.get(car);
+            Integer carId = ids == null ? null : ids.poll();
+            if (newVersion != null) {
+                updated.add(newVersion);
+            }
+            if (carId != null && newVersion != null) {
+                changes.update(carId, newVersion);
+            } else if (carId != null) {
+                changes.delete(carId);
+            } else if (newVersion != null) {
+                changes.insert(newVersion);
+            }
+        }
+        added.stream().filter(car -> !updated.contains(car)).forEach(changes::insert);
+        return changes;
+    }
+
+    // false when there is no such car left
+    private static boolean take(Map<Car, Integer> remaining, Car car) {
+        Integer count = remaining.get(car);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            remaining.remove(car);
+        } else {
+            remaining.put(car, count - 1);
+        }
+        return true;
+    }
+
+    // ids of cars of snapshot equal to given ones, in order of ids
+    private static Map<Car, Deque<Integer>> currentIds(CarsSnapshot snapshot, Set<Car> cars) {
+        Map<Car, Deque<Integer>> currentIds = new HashMap<>();
+        if (cars.isEmpty()) {
+            return currentIds;
+        }
+        for (int carId = 0; carId < snapshot.nextCarId(); carId++) {
+            if (snapshot.contains(carId) && cars.contains(snapshot.car(carId))) {
+                currentIds.computeIfAbsent(snapshot.car(carId), car -> new ArrayDeque<>()).add(carId);
+            }
+        }
+        return currentIds;
+    }
+
+    @Value
+    private static class CarIdentity {
+        String model;
+        Color color;
+        Set<String> components;
+
+        static CarIdentity of(Car car) {
+            return new CarIdentity(car.getModel(), car.getColor(), car.getComponents());
+        }
+    }
+}
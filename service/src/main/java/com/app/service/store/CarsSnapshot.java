@@ -0,0 +1,220 @@
+package com.app.service.store;
+
+import com.app.persistence.model.Car;
+import com.app.service.cube.AggregateCube;
+import com.app.service.exception.CarsServiceException;
+import com.app.service.index.CarsIndex;
+import com.app.service.index.ComponentIndex;
+import com.app.service.parallel.ParallelExecutor;
+import com.app.service.stats.CarStatistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+// immutable state of cars together with indexes built over them
+// car id is its position in carsById, ids of removed cars are not reused so ids stay stable between versions
+// applying changes gives new snapshot, indexes and statistics of the new one are derived from this one
+// cars are immutable, so they are shared by all snapshots which contain them and returned by queries as they are
+public final class CarsSnapshot {
+
+    private final long version;
+    private final Car[] carsById;
+    private final List<Car> cars;
+    private final CarsIndex carsIndex;
+    private final ComponentIndex componentIndex;
+    private final ParallelExecutor executor;
+    // statistics and cube are computed on first use when not derived from previous version
+    private volatile CarStatistics statistics;
+    private volatile AggregateCube cube;
+    // ids by car object, built on first lookup, equal cars of different ids are told apart by identity
+    private volatile Map<Car, Integer> idsByCar;
+
+    private CarsSnapshot(long version, Car[] carsById, CarsIndex carsIndex, ComponentIndex componentIndex,
+                         ParallelExecutor executor, CarStatistics statistics, AggregateCube cube) {
+        this.version = version;
+        this.carsById = carsById;
+        this.carsIndex = carsIndex;
+        this.componentIndex = componentIndex;
+        this.executor = executor;
+        this.statistics = statistics;
+        this.cube = cube;
+        List<Car> liveCars = new ArrayList<>(carsIndex.size());
+        for (Car car : carsById) {
+            if (car != null) {
+                liveCars.add(car);
+            }
+        }
+        this.cars = Collections.unmodifiableList(liveCars);
+    }
+
+    public static CarsSnapshot of(Collection<Car> cars) {
+        return of(cars, ParallelExecutor.sequential());
+    }
+
+    // executor is used to build indexes and statistics and to run queries over this snapshot and derived ones
+    public static CarsSnapshot of(Collection<Car> cars, ParallelExecutor executor) {
+        if (cars == null || executor == null) {
+            throw new CarsServiceException("cars collection or executor is null");
+        }
+        Car[] carsById = cars.toArray(new Car[0]);
+        return new CarsSnapshot(0, carsById, new CarsIndex(Arrays.asList(carsById), executor),
+                componentIndex(carsById), executor, null, null);
+    }
+
+    // the same cars with ids without gaps left by removed cars, ids are given in order of current ids
+    // car indexes, statistics and cube do not depend on ids, so they are shared with this snapshot
+    public CarsSnapshot compacted() {
+        Car[] compactedCarsById = cars.toArray(new Car[0]);
+        return new CarsSnapshot(version + 1, compactedCarsById, carsIndex, componentIndex(compactedCarsById),
+                executor, statistics, cube);
+    }
+
+    private static ComponentIndex componentIndex(Car[] carsById) {
+        ComponentIndex componentIndex = new ComponentIndex();
+        for (int carId = 0; carId < carsById.length; carId++) {
+            componentIndex.add(carId, carsById[carId].getComponents());
+        }
+        return componentIndex;
+    }
+
+    // copy on write, cost is O(n) in number of cars for every applied batch, not only for changed cars:
+    // carsById and list of cars are copied, sorted arrays and key arrays of car index, flattened model and color
+    // groups and sorted values of statistics with their histograms are built again
+    // changed cars are found without scanning, unchanged model and color groups, component bitmaps and cells
+    // of cube are shared with this snapshot, so many changes should be applied as one batch
+    public CarsSnapshot apply(CarChanges changes) {
+        if (changes == null) {
+            throw new CarsServiceException("changes object is null");
+        }
+        if (changes.isEmpty()) {
+            return this;
+        }
+        Car[] changedCarsById = Arrays.copyOf(carsById, carsById.length + changes.getInserted().size());
+        ComponentIndex changedComponentIndex = componentIndex.copy();
+        List<Car> removed = new ArrayList<>();
+        List<Car> added = new ArrayList<>();
+        for (int carId : changes.getDeleted()) {
+            Car car = car(carId);
+            removed.add(car);
+            changedCarsById[carId] = null;
+            changedComponentIndex.remove(carId, car.getComponents());
+        }
+        for (Map.Entry<Integer, Car> update : changes.getUpdated().entrySet()) {
+            int carId = update.getKey();
+            Car oldCar = car(carId);
+            Car newCar = update.getValue();
+            removed.add(oldCar);
+            added.add(newCar);
+            changedCarsById[carId] = newCar;
+            changedComponentIndex.update(carId, oldCar.getComponents(), newCar.getComponents());
+        }
+        int carId = carsById.length;
+        for (Car car : changes.getInserted()) {
+            added.add(car);
+            changedCarsById[carId] = car;
+            changedComponentIndex.add(carId, car.getComponents());
+            carId++;
+        }
+        CarsIndex changedCarsIndex = carsIndex.withChanges(removed, added);
+        CarStatistics currentStatistics = statistics;
+        AggregateCube currentCube = cube;
+        return new CarsSnapshot(
+                version + 1,
+                changedCarsById,
+                changedCarsIndex,
+                changedComponentIndex,
+                executor,
+                currentStatistics == null ? null : currentStatistics.withChanges(removed, added, changedCarsIndex),
+                currentCube == null ? null : currentCube.withChanges(removed, added, changedCarsIndex));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // cars in order of their ids
+    public List<Car> getCars() {
+        return cars;
+    }
+
+    // id which next inserted car gets
+    public int nextCarId() {
+        return carsById.length;
+    }
+
+    public Car car(int carId) {
+        if (carId < 0 || carId >= carsById.length || carsById[carId] == null) {
+            throw new CarsServiceException("there is no car with id: " + carId);
+        }
+        return carsById[carId];
+    }
+
+    // cars are immutable values, their identity is id in snapshot, looked up here for car object of this snapshot,
+    // e.g. car returned by query, so it can be updated or removed
+    // empty for car which is only equal to car of snapshot, and for car replaced by update
+    public OptionalInt idOf(Car car) {
+        Map<Car, Integer> ids = idsByCar;
+        if (ids == null) {
+            ids = new IdentityHashMap<>(cars.size() * 2);
+            for (int carId = 0; carId < carsById.length; carId++) {
+                if (carsById[carId] != null) {
+                    ids.put(carsById[carId], carId);
+                }
+            }
+            idsByCar = ids;
+        }
+        Integer carId = ids.get(car);
+        return carId == null ? OptionalInt.empty() : OptionalInt.of(carId);
+    }
+
+    public boolean contains(int carId) {
+        return carId >= 0 && carId < carsById.length && carsById[carId] != null;
+    }
+
+    public CarsIndex getCarsIndex() {
+        return carsIndex;
+    }
+
+    public ComponentIndex getComponentIndex() {
+        return componentIndex;
+    }
+
+    public ParallelExecutor getExecutor() {
+        return executor;
+    }
+
+    public CarStatistics statistics() {
+        CarStatistics current = statistics;
+        if (current == null) {
+            current = executor.execute(cars.size(), () -> executor
+                    .stream(cars)
+                    .collect(CarStatistics.collector()));
+            statistics = current;
+        }
+        return current;
+    }
+
+    public AggregateCube cube() {
+        AggregateCube current = cube;
+        if (current == null) {
+            current = AggregateCube.of(cars);
+            cube = current;
+        }
+        return current;
+    }
+
+    public List<Car> carsWithIds(BitSet carIds) {
+        List<Car> carsWithIds = new ArrayList<>(carIds.cardinality());
+        for (int carId = carIds.nextSetBit(0); carId >= 0; carId = carIds.nextSetBit(carId + 1)) {
+            carsWithIds.add(carsById[carId]);
+        }
+        return carsWithIds;
+    }
+}
@@ -1,61 +1,136 @@
 package com.app.service.validation;
 
+import com.app.persistence.metrics.Counter;
+import com.app.persistence.metrics.LatencyHistogram;
+import com.app.persistence.metrics.Metrics;
 import com.app.persistence.model.Car;
 import com.app.service.exception.CarValidatorException;
 import com.app.service.validation.generic.AbstractValidator;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class CarValidator extends AbstractValidator<Car> {
 
+    private static final LatencyHistogram VALIDATE = Metrics.latency("validation.validate");
+    private static final Counter VALID = Metrics.counter("validation.valid");
+    private static final Counter INVALID = Metrics.counter("validation.invalid");
+
+    private static final String MODEL = "Model";
+    private static final String MILEAGE = "Mileage";
+    private static final String PRICE = "Price";
+    private static final String COMPONENTS = "Components";
+    private static final String COLOR = "Color";
+    // counters of errors are registered once, like counters of results
+    private static final Map<String, Counter> ERRORS = Map.of(
+            MODEL, errorCounter(MODEL),
+            MILEAGE, errorCounter(MILEAGE),
+            PRICE, errorCounter(PRICE),
+            COMPONENTS, errorCounter(COMPONENTS),
+            COLOR, errorCounter(COLOR));
+
+    // errors map is reused between calls, so returned map is valid only until next validate call
     @Override
     public Map<String, String> validate(Car item) {
-        Map<String, String> errors = new HashMap<>();
+        if (item == null) {
+            throw new CarValidatorException("Item is null");
+        }
+        long start = Metrics.start();
+        errors.clear();
         if (!isModelHasOnlyUppercase(item)) {
-            errors.put("Field", "Model doesnt have only uppercase chars");
+            errors.put(MODEL, "Model doesnt have only uppercase chars");
         }
         if (!isMileageIsPositive(item)) {
-            errors.put("Field", "Mileage is not positive");
+            errors.put(MILEAGE, "Mileage is not positive");
         }
         if (!isPriceIsPositive(item)) {
-            errors.put("Field", "Price is not positive");
+            errors.put(PRICE, "Price is not positive");
         }
         if (!areComponentsSetHasOnlyUppercase(item)) {
-            errors.put("Field", "Components Set has not only uppercase elements");
+            errors.put(COMPONENTS, "Components Set has not only uppercase elements");
+        }
+        if (item.getColor() == null) {
+            errors.put(COLOR, "Color is null");
+        }
+        VALIDATE.stop(start);
+        if (Metrics.isEnabled()) {
+            countResult();
         }
         return errors;
     }
 
-    private boolean isModelHasOnlyUppercase(Car item) {
-        if (item == null) {
-            throw new CarValidatorException("Item is null");
+    private void countResult() {
+        if (errors.isEmpty()) {
+            VALID.increment();
+            return;
         }
-        return item.getModel().matches("([A-Z]+?.)+");
+        INVALID.increment();
+        errors.keySet().forEach(key -> ERRORS.get(key).increment());
+    }
+
+    private static Counter errorCounter(String key) {
+        return Metrics.counter("validation.errors." + key);
+    }
+
+    private boolean isModelHasOnlyUppercase(Car item) {
+        return hasOnlyUppercase(item.getModel());
     }
 
     private boolean isMileageIsPositive(Car item) {
-        if (item == null) {
-            throw new CarValidatorException("Item is null");
-        }
         return item.getMileage() >= 0;
     }
 
     private boolean isPriceIsPositive(Car item) {
-        if (item == null) {
-            throw new CarValidatorException("Item is null");
-        }
-        return item.getPrice().compareTo(BigDecimal.ZERO) >= 0;
+        return item.getPrice() != null && item.getPrice().signum() >= 0;
     }
 
     private boolean areComponentsSetHasOnlyUppercase(Car item) {
-        if (item == null) {
-            throw new CarValidatorException("Item is null");
+        Set<String> components = item.getComponents();
+        if (components == null) {
+            return false;
+        }
+        for (String component : components) {
+            if (!hasOnlyUppercase(component)) {
+                return false;
+            }
         }
-        return item.getComponents()
-                .stream()
-                .allMatch(c -> c.matches("([A-Z]+?.)+"));
+        return true;
+    }
+
+    // hand-rolled equivalent of value.matches("([A-Z]+?.)+"):
+    // every run of uppercase letters has to be followed by exactly one separator char,
+    // except the last run, which has to have at least two letters
+    static boolean hasOnlyUppercase(String value) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            if (!isUppercase(value.charAt(i))) {
+                return false;
+            }
+            int end = i + 1;
+            while (end < length && isUppercase(value.charAt(end))) {
+                end++;
+            }
+            if (end == length) {
+                return end - i >= 2;
+            }
+            if (isLineTerminator(value.charAt(end))) {
+                return false;
+            }
+            i = end + 1;
+        }
+        return true;
+    }
+
+    private static boolean isUppercase(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 
 }
@@ -0,0 +1,59 @@
+package com.app.service.validation;
+
+import com.app.persistence.model.Car;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+// fork-join validation of a batch of cars
+// result of validation of car at index i is stored in valid[i], errors are collected in returned report
+public class CarsValidationTask extends RecursiveTask<ValidationReport> {
+
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private final List<Car> cars;
+    private final boolean[] valid;
+    private final int from;
+    private final int to;
+    private final long firstRecordNumber;
+
+    public CarsValidationTask(List<Car> cars, boolean[] valid, long firstRecordNumber) {
+        this(cars, valid, 0, cars.size(), firstRecordNumber);
+    }
+
+    private CarsValidationTask(List<Car> cars, boolean[] valid, int from, int to, long firstRecordNumber) {
+        this.cars = cars;
+        this.valid = valid;
+        this.from = from;
+        this.to = to;
+        this.firstRecordNumber = firstRecordNumber;
+    }
+
+    @Override
+    protected ValidationReport compute() {
+        if (to - from <= SEQUENTIAL_THRESHOLD) {
+            return validateSequentially();
+        }
+        int middle = (from + to) >>> 1;
+        var left = new CarsValidationTask(cars, valid, from, middle, firstRecordNumber);
+        var right = new CarsValidationTask(cars, valid, middle, to, firstRecordNumber);
+        left.fork();
+        ValidationReport rightReport = right.compute();
+        return left.join().merge(rightReport);
+    }
+
+    private ValidationReport validateSequentially() {
+        var report = new ValidationReport();
+        var carValidator = new CarValidator();
+        for (int i = from; i < to; i++) {
+            var errors = carValidator.validate(cars.get(i));
+            valid[i] = !carValidator.hasErrors();
+            if (valid[i]) {
+                report.recordValid();
+            } else {
+                report.recordInvalid(firstRecordNumber + i, errors);
+            }
+        }
+        return report;
+    }
+}
@@ -0,0 +1,82 @@
+package com.app.service.validation;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public final class ValidationReport {
+
+    // source is file of record when cars are loaded from many files, otherwise it is null
+    @Value
+    public static class InvalidRecord {
+        String source;
+        long recordNumber;
+        Map<String, String> errors;
+    }
+
+    private long validatedRecords;
+    private final List<InvalidRecord> invalidRecords = new ArrayList<>();
+
+    public void recordValid() {
+        validatedRecords++;
+    }
+
+    public void recordInvalid(long recordNumber, Map<String, String> errors) {
+        validatedRecords++;
+        invalidRecords.add(new InvalidRecord(null, recordNumber, Map.copyOf(errors)));
+    }
+
+    // reports are merged in record order, so merged report keeps invalid records sorted
+    public ValidationReport merge(ValidationReport other) {
+        validatedRecords += other.validatedRecords;
+        invalidRecords.addAll(other.invalidRecords);
+        return this;
+    }
+
+    // report of one of many loaded files, its invalid records are marked with the file
+    public ValidationReport merge(String source, ValidationReport other) {
+        validatedRecords += other.validatedRecords;
+        other.invalidRecords.forEach(record -> invalidRecords.add(
+                new InvalidRecord(source, record.getRecordNumber(), record.getErrors())));
+        return this;
+    }
+
+    public long getValidatedRecords() {
+        return validatedRecords;
+    }
+
+    public long getInvalidRecordsCount() {
+        return invalidRecords.size();
+    }
+
+    public List<InvalidRecord> getInvalidRecords() {
+        return Collections.unmodifiableList(invalidRecords);
+    }
+
+    public boolean hasErrors() {
+        return !invalidRecords.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (InvalidRecord invalidRecord : invalidRecords) {
+            sb.append("---------------------- Validation error -----------------").append("\n")
+                    .append("---------------------- Car no. ").append(invalidRecord.getRecordNumber())
+                    .append(invalidRecord.getSource() == null ? "" : " in " + invalidRecord.getSource()).append("\n")
+                    .append(invalidRecord.getErrors()
+                            .entrySet()
+                            .stream()
+                            .map(e -> e.getKey() + ": " + e.getValue())
+                            .collect(Collectors.joining("\n")))
+                    .append("\n");
+        }
+        return sb.append("---------------------------------------------------------").append("\n")
+                .append("Validated cars: ").append(validatedRecords).append("\n")
+                .append("Invalid cars: ").append(invalidRecords.size()).toString();
+    }
+}
@@ -1,17 +1,144 @@
 package com.app.ui;
 
+import com.app.persistence.metrics.Metrics;
+import com.app.service.parallel.ParallelExecutor;
+import com.app.service.reload.CarsReloader;
 import com.app.service.service.CarsService;
+import com.app.ui.exceptions.HeadlessException;
+import com.app.ui.headless.BatchRunner;
+import com.app.ui.headless.BoundedExecutors;
+import com.app.ui.headless.CarsHttpServer;
+import com.app.ui.headless.CommandRunner;
 import com.app.ui.menu.MenuService;
+import com.app.ui.output.JsonOutput;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+// without options application shows interactive menu
+// --data <file>     json file with cars, ./resources/data/cars.json by default
+// --batch <file|->  runs commands from file or standard input and writes json lines to standard output
+// --serve <port>    serves commands over http on loopback address until process is stopped
+// --threads <n>     threads running commands in batch and http modes, number of processors by default
+// --watch           reloads cars after json files change, in menu and http modes
 public class App {
+
+    private static final String DEFAULT_FILENAME = "./resources/data/cars.json";
+    private static final Set<String> OPTIONS = Set.of("--data", "--batch", "--serve", "--threads");
+    private static final Set<String> FLAGS = Set.of("--watch");
+    // commands waiting in queue for every thread
+    private static final int QUEUE_PER_THREAD = 16;
+
     public static void main(String[] args) {
         try {
-            final String FILENAME = "./resources/data/cars.json";
-            var carsService = new CarsService(FILENAME);
-            var menuService = new MenuService(carsService);
-            menuService.mainMenu();
+            Map<String, String> options = options(args);
+            if (options.containsKey("--batch") && options.containsKey("--serve")) {
+                throw new HeadlessException("--batch and --serve cannot be used together");
+            }
+            Metrics.registerMBean();
+            String filename = options.getOrDefault("--data", DEFAULT_FILENAME);
+            if (options.containsKey("--batch") || options.containsKey("--serve")) {
+                runHeadless(filename, options);
+                return;
+            }
+            var carsService = new CarsService(filename);
+            carsService.registerGauges("");
+            if (carsService.getValidationReport().hasErrors()) {
+                System.out.println(carsService.getValidationReport());
+            }
+            try (var reloader = watch(carsService, options, System.out)) {
+                var menuService = new MenuService(carsService);
+                menuService.mainMenu();
+            }
         } catch (Exception e) {
             System.out.println(e.getMessage());
         }
     }
+
+    // standard output carries only results, so messages go to standard error
+    private static void runHeadless(String filename, Map<String, String> options) throws IOException, InterruptedException {
+        int threads = options.containsKey("--threads")
+                ? positive("--threads", options.get("--threads"))
+                : Runtime.getRuntime().availableProcessors();
+        try (var parallelExecutor = ParallelExecutor.withPool(); var carsService = new CarsService(filename, false, parallelExecutor)) {
+            carsService.registerGauges("");
+            if (carsService.getValidationReport().hasErrors()) {
+                System.err.println(carsService.getValidationReport());
+            }
+            var commandRunner = new CommandRunner(carsService);
+            if (options.containsKey("--serve")) {
+                try (var reloader = watch(carsService, options, System.err)) {
+                    serve(commandRunner, positive("--serve", options.get("--serve")), threads);
+                }
+            } else {
+                runBatch(commandRunner, options.get("--batch"), threads);
+            }
+        }
+    }
+
+    private static void runBatch(CommandRunner commandRunner, String commandsFile, int threads) throws IOException {
+        var executor = BoundedExecutors.create("batch-worker", threads, threads * QUEUE_PER_THREAD);
+        var output = new JsonOutput(System.out);
+        output.setCompact(true);
+        try (BufferedReader reader = "-".equals(commandsFile)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(commandsFile))) {
+            long commands = new BatchRunner(commandRunner, executor, threads * QUEUE_PER_THREAD).run(reader, output);
+            System.err.println("Commands: " + commands);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void serve(CommandRunner commandRunner, int port, int threads) throws InterruptedException {
+        CountDownLatch stopped = new CountDownLatch(1);
+        try (var server = new CarsHttpServer(commandRunner, port, threads, threads * QUEUE_PER_THREAD)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(stopped::countDown));
+            server.start();
+            System.err.println("Serving commands on http://localhost:" + server.getPort() + "/commands/");
+            stopped.await();
+        }
+    }
+
+    // null when cars are not watched
+    private static CarsReloader watch(CarsService carsService, Map<String, String> options, PrintStream messages) {
+        if (!options.containsKey("--watch")) {
+            return null;
+        }
+        return new CarsReloader(carsService, CarsReloader.DEFAULT_QUIET_PERIOD,
+                result -> messages.println("Cars reloaded, inserted: " + result.getInserted()
+                        + ", updated: " + result.getUpdated() + ", deleted: " + result.getDeleted()),
+                failure -> messages.println("Cars cannot be reloaded: " + failure.getMessage()))
+                .start();
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (FLAGS.contains(args[i])) {
+                options.put(args[i], "true");
+            } else if (OPTIONS.contains(args[i]) && i + 1 < args.length) {
+                options.put(args[i], args[++i]);
+            } else {
+                throw new HeadlessException("option is not correct: " + args[i] + ", correct options: " + OPTIONS + " " + FLAGS);
+            }
+        }
+        return options;
+    }
+
+    private static int positive(String option, String value) {
+        if (!value.matches("\\d+") || Integer.parseInt(value) <= 0) {
+            throw new HeadlessException(option + " value is not correct: " + value);
+        }
+        return Integer.parseInt(value);
+    }
 }
@@ -0,0 +1,7 @@
+package com.app.ui.exceptions;
+
+public class HeadlessException extends RuntimeException {
+    public HeadlessException(String message) {
+        super(message);
+    }
+}
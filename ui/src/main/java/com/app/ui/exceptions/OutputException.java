@@ -0,0 +1,7 @@
+package com.app.ui.exceptions;
+
+public class OutputException extends RuntimeException {
+    public OutputException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,98 @@
+package com.app.ui.headless;
+
+import com.app.ui.exceptions.HeadlessException;
+import com.app.ui.output.JsonOutput;
+import lombok.RequiredArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+// reads one command per line and runs commands concurrently on executor
+// results are written as json lines in order of commands, each as soon as it and all earlier ones are done;
+// failed command gives line {"error": message}, empty lines and lines starting with # are skipped
+// at most maxInFlight commands wait for their results, so reading stops while writing falls behind
+@RequiredArgsConstructor
+public final class BatchRunner {
+
+    private static final Future<Object> END = CompletableFuture.completedFuture(null);
+
+    private final CommandRunner commandRunner;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    // returns number of commands
+    public long run(BufferedReader reader, JsonOutput output) {
+        BlockingQueue<Future<Object>> pending = new ArrayBlockingQueue<>(maxInFlight);
+        AtomicReference<RuntimeException> writeFailure = new AtomicReference<>();
+        Thread writer = new Thread(() -> writeResults(pending, output, writeFailure), "batch-writer");
+        writer.start();
+        long commands = 0;
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String commandLine = line;
+                pending.put(executor.submit(() -> commandRunner.run(Command.parse(commandLine))));
+                commands++;
+            }
+            pending.put(END);
+            writer.join();
+        } catch (IOException e) {
+            writer.interrupt();
+            throw new HeadlessException("commands cannot be read: " + e.getMessage());
+        } catch (InterruptedException e) {
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+            throw new HeadlessException("batch was interrupted");
+        }
+        if (writeFailure.get() != null) {
+            throw new HeadlessException("results cannot be written: " + writeFailure.get().getMessage());
+        }
+        return commands;
+    }
+
+    // after output fails, remaining commands are only cancelled, so reader is never blocked by full queue
+    private static void writeResults(BlockingQueue<Future<Object>> pending, JsonOutput output,
+                                     AtomicReference<RuntimeException> writeFailure) {
+        try {
+            Future<Object> result;
+            while ((result = pending.take()) != END) {
+                if (writeFailure.get() != null) {
+                    result.cancel(true);
+                    continue;
+                }
+                try {
+                    writeResult(result, output);
+                } catch (RuntimeException e) {
+                    writeFailure.set(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            pending.forEach(result -> result.cancel(true));
+        }
+    }
+
+    private static void writeResult(Future<Object> result, JsonOutput output) throws InterruptedException {
+        Object value;
+        try {
+            value = result.get();
+        } catch (ExecutionException e) {
+            CommandRunner.writeError(output, e.getCause().getMessage());
+            return;
+        } catch (CancellationException e) {
+            CommandRunner.writeError(output, "command was cancelled");
+            return;
+        }
+        CommandRunner.write(output, value);
+    }
+}
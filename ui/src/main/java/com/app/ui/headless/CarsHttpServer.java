@@ -0,0 +1,104 @@
+package com.app.ui.headless;
+
+import com.app.ui.exceptions.HeadlessException;
+import com.app.ui.output.JsonOutput;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// local http endpoint for commands: GET /commands/<name>?<key>=<value>&...
+// e.g. /commands/sortCars?criterion=PRICE&ascending=false&limit=10
+// requests are handled on bounded executor, result is streamed as compact json with chunked encoding
+// server listens only on loopback address, commands writing files are refused, any local page could request them
+public final class CarsHttpServer implements AutoCloseable {
+
+    private static final String COMMANDS_PATH = "/commands/";
+    private static final int BACKLOG = 128;
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final CommandRunner commandRunner;
+
+    public CarsHttpServer(CommandRunner commandRunner, int port, int threads, int queueCapacity) {
+        this.commandRunner = commandRunner;
+        this.executor = BoundedExecutors.create("http-worker", threads, queueCapacity);
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw new HeadlessException("http server cannot be started on port " + port + ": " + e.getMessage());
+        }
+        server.createContext(COMMANDS_PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // real port, when server was created with port 0
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().add("Allow", "GET");
+                sendError(exchange, 405, "only GET method is allowed");
+                return;
+            }
+            Object result;
+            try {
+                String name = exchange.getRequestURI().getPath().substring(COMMANDS_PATH.length());
+                if (CommandRunner.FILE_COMMANDS.contains(name)) {
+                    sendError(exchange, 403, "command is not served over http: " + name);
+                    return;
+                }
+                result = commandRunner.run(Command.of(name, Command.parseQuery(exchange.getRequestURI().getRawQuery())));
+            } catch (RuntimeException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            CommandRunner.write(output(exchange.getResponseBody()), result);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        CommandRunner.writeError(output(exchange.getResponseBody()), message);
+    }
+
+    private static JsonOutput output(OutputStream responseBody) {
+        JsonOutput output = new JsonOutput(responseBody);
+        output.setCompact(true);
+        return output;
+    }
+
+    // waits shortly for running exchanges before stopping
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.app.ui.headless;
+
+import com.app.ui.exceptions.HeadlessException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// named command with its parameters, e.g. line "sortCars criterion=PRICE ascending=true"
+// or request "/commands/sortCars?criterion=PRICE&ascending=true"
+// values are url decoded, so they can contain spaces written as %20
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Command {
+
+    String name;
+    Map<String, String> params;
+
+    public static Command of(String name, Map<String, String> params) {
+        if (name == null || name.isBlank()) {
+            throw new HeadlessException("command name is empty");
+        }
+        return new Command(name, Collections.unmodifiableMap(new LinkedHashMap<>(params)));
+    }
+
+    public static Command parse(String line) {
+        if (line == null) {
+            throw new HeadlessException("command line is null");
+        }
+        String[] tokens = line.trim().split("\\s+");
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 1; i < tokens.length; i++) {
+            putParam(params, tokens[i]);
+        }
+        return of(tokens[0], params);
+    }
+
+    // params of url query, e.g. "criterion=PRICE&ascending=true"
+    public static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query != null && !query.isEmpty()) {
+            for (String param : query.split("&")) {
+                putParam(params, param);
+            }
+        }
+        return params;
+    }
+
+    private static void putParam(Map<String, String> params, String param) {
+        int separator = param.indexOf('=');
+        if (separator <= 0) {
+            throw new HeadlessException("parameter is not in key=value form: " + param);
+        }
+        String key = decode(param.substring(0, separator));
+        if (params.put(key, decode(param.substring(separator + 1))) != null) {
+            throw new HeadlessException("parameter is repeated: " + key);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new HeadlessException("parameter is not correctly encoded: " + value);
+        }
+    }
+
+    public Optional<String> param(String key) {
+        return Optional.ofNullable(params.get(key));
+    }
+
+    public String requiredParam(String key) {
+        return param(key).orElseThrow(() -> new HeadlessException("parameter is missing: " + key));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name);
+        params.forEach((key, value) -> sb.append(' ').append(key).append('=').append(value));
+        return sb.toString();
+    }
+}
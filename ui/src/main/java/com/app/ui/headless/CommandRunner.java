@@ -0,0 +1,206 @@
+package com.app.ui.headless;
+
+import com.app.persistence.enums.Color;
+import com.app.persistence.export.ExportFormat;
+import com.app.persistence.model.Car;
+import com.app.service.cube.CubeQuery;
+import com.app.service.cube.Dimension;
+import com.app.service.enums.SortCriterion;
+import com.app.service.query.CarQuery;
+import com.app.service.service.CarsService;
+import com.app.ui.exceptions.HeadlessException;
+import com.app.ui.output.JsonOutput;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// runs commands of batch and http modes against one CarsService
+// commands only read cars, so any number of them can run at the same time, export writes only its own file
+@RequiredArgsConstructor
+public final class CommandRunner {
+
+    public static final List<String> COMMANDS = List.of(
+            "cars", "sortCars", "greaterMileage", "carColors", "mostExpensiveModel", "priceStats", "mileageStats",
+            "mostExpensive", "biggestMileage", "biggestPrice", "inPriceRange", "componentsInCars",
+            "carsWithComponent", "carsWithAllComponents", "carsWithAnyComponent", "query", "explain", "groupBy",
+            "cacheStats", "export");
+    // commands writing files, they are not served over http
+    public static final Set<String> FILE_COMMANDS = Set.of("export");
+    private static final Set<String> EXPORT_PARAMS = Set.of("of", "file", "format", "gzip");
+
+    private final CarsService carsService;
+
+    public Object run(Command command) {
+        return switch (command.getName()) {
+            case "cars" -> carsService.getCars();
+            case "sortCars" -> command.param("limit").isPresent()
+                    ? carsService.sortCars(sortCriterion(command), ascending(command), offset(command), limit(command))
+                    : carsService.sortCars(sortCriterion(command), ascending(command));
+            case "greaterMileage" -> command.param("limit").isPresent()
+                    ? carsService.greaterMileage(decimal(command, "mileage").doubleValue(), offset(command), limit(command))
+                    : carsService.greaterMileage(decimal(command, "mileage").doubleValue());
+            case "carColors" -> carsService.carColors();
+            case "mostExpensiveModel" -> command.param("limit").isPresent()
+                    ? carsService.mostExpensiveModel(limit(command))
+                    : carsService.mostExpensiveModel();
+            case "priceStats" -> carsService.priceStats();
+            case "mileageStats" -> carsService.mileageStats();
+            case "mostExpensive" -> command.param("limit").isPresent()
+                    ? carsService.mostExpensive(limit(command))
+                    : carsService.mostExpensive();
+            case "biggestMileage" -> carsService.biggestMileage(limit(command));
+            case "biggestPrice" -> carsService.biggestPrice();
+            case "inPriceRange" -> carsService.inPriceRange(decimal(command, "from"), decimal(command, "to"));
+            case "componentsInCars" -> carsService.componentsInCars();
+            case "carsWithComponent" -> carsService.carsWithComponent(command.requiredParam("component"));
+            case "carsWithAllComponents" -> carsService.carsWithAllComponents(components(command));
+            case "carsWithAnyComponent" -> carsService.carsWithAnyComponent(components(command));
+            case "query" -> carsService.query(query(command));
+            case "explain" -> carsService.explain(query(command));
+            case "groupBy" -> carsService.groupBy(cubeQuery(command));
+            case "cacheStats" -> carsService.cacheStats();
+            case "export" -> export(command);
+            default -> throw new HeadlessException("unknown command: " + command.getName() + ", known commands: " + COMMANDS);
+        };
+    }
+
+    // export params: of is name of command giving cars, other params than file, format and gzip are params of that command,
+    // e.g. export of=sortCars criterion=PRICE file=cars.csv.gz format=csv gzip=true
+    private Map<String, Object> export(Command command) {
+        String name = command.requiredParam("of");
+        Map<String, String> params = new LinkedHashMap<>(command.getParams());
+        params.keySet().removeAll(EXPORT_PARAMS);
+        Object result = run(Command.of(name, params));
+        if (!(result instanceof Collection) || !((Collection<?>) result).stream().allMatch(element -> element instanceof Car)) {
+            throw new HeadlessException("command does not give cars: " + name);
+        }
+        @SuppressWarnings("unchecked")
+        Collection<Car> cars = (Collection<Car>) result;
+        String file = command.requiredParam("file");
+        long exported = carsService.export(cars, file,
+                enumValue(ExportFormat.class, command.param("format").orElse(ExportFormat.JSON_LINES.name())),
+                Boolean.parseBoolean(command.param("gzip").orElse("false")));
+        Map<String, Object> exportResult = new LinkedHashMap<>();
+        exportResult.put("file", file);
+        exportResult.put("cars", exported);
+        return exportResult;
+    }
+
+    // collections and maps of collections are written element by element
+    @SuppressWarnings("unchecked")
+    public static void write(JsonOutput output, Object result) {
+        if (result instanceof Iterable) {
+            output.writeAll((Iterable<Object>) result);
+        } else if (result instanceof Map && ((Map<?, ?>) result).values().stream().allMatch(v -> v instanceof Iterable)) {
+            output.writeAll((Map<Object, Iterable<Object>>) result);
+        } else {
+            output.write(result);
+        }
+    }
+
+    public static void writeError(JsonOutput output, String message) {
+        output.write(Map.of("error", String.valueOf(message)));
+    }
+
+    // query params: models, colors, components and anyComponents are comma separated lists,
+    // priceFrom, priceTo, mileageFrom and mileageTo are inclusive bounds
+    private static CarQuery query(Command command) {
+        CarQuery.Builder builder = CarQuery.builder();
+        command.param("models").ifPresent(models -> builder.models(list(models)));
+        command.param("colors").ifPresent(colors -> builder.colors(list(colors)
+                .stream()
+                .map(color -> enumValue(Color.class, color))
+                .toArray(Color[]::new)));
+        command.param("priceFrom").ifPresent(price -> builder.priceAtLeast(decimal("priceFrom", price)));
+        command.param("priceTo").ifPresent(price -> builder.priceAtMost(decimal("priceTo", price)));
+        command.param("mileageFrom").ifPresent(mileage -> builder.mileageAtLeast(decimal("mileageFrom", mileage).doubleValue()));
+        command.param("mileageTo").ifPresent(mileage -> builder.mileageAtMost(decimal("mileageTo", mileage).doubleValue()));
+        command.param("components").ifPresent(components -> builder.withAllComponents(list(components).toArray(String[]::new)));
+        command.param("anyComponents").ifPresent(components -> builder.withAnyComponent(list(components).toArray(String[]::new)));
+        command.param("sortBy").ifPresent(criterion -> builder.sortBy(enumValue(SortCriterion.class, criterion), ascending(command)));
+        command.param("offset").ifPresent(offset -> builder.offset(integer("offset", offset)));
+        command.param("limit").ifPresent(limit -> builder.limit(integer("limit", limit)));
+        return builder.build();
+    }
+
+    // groupBy params: by is comma separated list of dimensions, e.g. model,price_band, without it all cars make one group,
+    // model, color and component keep only their cars, price and mileage keep cars of bands containing them
+    private static CubeQuery cubeQuery(Command command) {
+        CubeQuery.Builder builder = CubeQuery.builder();
+        command.param("by").ifPresent(dimensions -> builder.groupBy(list(dimensions)
+                .stream()
+                .map(dimension -> enumValue(Dimension.class, dimension))
+                .toArray(Dimension[]::new)));
+        command.param("model").ifPresent(builder::model);
+        command.param("color").ifPresent(color -> builder.color(enumValue(Color.class, color)));
+        command.param("component").ifPresent(builder::component);
+        command.param("price").ifPresent(price -> builder.priceBandOf(decimal("price", price)));
+        command.param("mileage").ifPresent(mileage -> builder.mileageBandOf(decimal("mileage", mileage).doubleValue()));
+        return builder.build();
+    }
+
+    private static SortCriterion sortCriterion(Command command) {
+        return enumValue(SortCriterion.class, command.requiredParam("criterion"));
+    }
+
+    private static boolean ascending(Command command) {
+        return Boolean.parseBoolean(command.param("ascending").orElse("true"));
+    }
+
+    private static int offset(Command command) {
+        return integer("offset", command.param("offset").orElse("0"));
+    }
+
+    private static int limit(Command command) {
+        return integer("limit", command.requiredParam("limit"));
+    }
+
+    private static Set<String> components(Command command) {
+        return new LinkedHashSet<>(list(command.requiredParam("components")));
+    }
+
+    private static BigDecimal decimal(Command command, String key) {
+        return decimal(key, command.requiredParam(key));
+    }
+
+    private static BigDecimal decimal(String key, String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new HeadlessException(key + " value is not correct: " + value);
+        }
+    }
+
+    private static int integer(String key, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HeadlessException(key + " value is not correct: " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new HeadlessException(type.getSimpleName() + " value is not correct: " + value
+                    + ", correct values: " + Arrays.toString(type.getEnumConstants()));
+        }
+    }
+
+    private static List<String> list(String values) {
+        return Arrays
+                .stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
@@ -1,11 +1,14 @@
 package com.app.ui.menu;
 
+import com.app.persistence.export.ExportFormat;
+import com.app.persistence.metrics.Metrics;
 import com.app.persistence.model.Car;
 import com.app.service.enums.SortCriterion;
+import com.app.service.reload.ReloadResult;
 import com.app.service.service.CarsService;
+import com.app.ui.exceptions.UserDataException;
+import com.app.ui.output.JsonOutput;
 import com.app.ui.user_data.UserDataService;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import lombok.RequiredArgsConstructor;
 
 import java.math.BigDecimal;
@@ -15,6 +18,7 @@ import java.util.List;
 public final class MenuService {
 
     private final CarsService carsService;
+    private final JsonOutput output = new JsonOutput(System.out);
 
     public void mainMenu() {
         while (true) {
@@ -30,6 +34,11 @@ public final class MenuService {
                 System.out.println("8. Cars with sorted components");
                 System.out.println("9. Components and car list");
                 System.out.println("10. Cars in price range");
+                System.out.println("11. Switch compact/pretty output");
+                System.out.println("12. Show metrics");
+                System.out.println("13. Enable/disable metrics");
+                System.out.println("14. Reload cars from file");
+                System.out.println("15. Export sorted cars to file");
                 int decision = UserDataService.getInteger("Choose option:");
                 switch (decision) {
                     case 0 -> {
@@ -46,6 +55,11 @@ public final class MenuService {
                     case 8 -> option8();
                     case 9 -> option9();
                     case 10 -> option10();
+                    case 11 -> option11();
+                    case 12 -> option12();
+                    case 13 -> option13();
+                    case 14 -> option14();
+                    case 15 -> option15();
                     default -> System.out.println("No option with this number");
                 }
             } catch (Exception e) {
@@ -54,57 +68,97 @@ public final class MenuService {
         }
     }
 
+    private void option15() {
+        SortCriterion sortCriterion = UserDataService.getSortCriterion();
+        boolean ascending = UserDataService.getBoolean("Ascending?");
+        ExportFormat format = UserDataService.getExportFormat();
+        boolean gzip = UserDataService.getBoolean("Compress with gzip?");
+        String filename = UserDataService.getString("File name? (e.g. cars" + format.getExtension() + (gzip ? ".gz)" : ")"));
+        long exported = carsService.export(carsService.sortCars(sortCriterion, ascending), filename, format, gzip);
+        System.out.println("Exported cars: " + exported);
+    }
+
+    private void option14() {
+        ReloadResult result = carsService.reload();
+        System.out.println("Inserted: " + result.getInserted() + ", updated: " + result.getUpdated() + ", deleted: " + result.getDeleted());
+        if (result.getValidationReport().hasErrors()) {
+            System.out.println(result.getValidationReport());
+        }
+    }
+
+    private void option13() {
+        Metrics.setEnabled(!Metrics.isEnabled());
+        System.out.println(Metrics.isEnabled() ? "Metrics enabled" : "Metrics disabled");
+    }
+
+    private void option12() {
+        output.writeText(Metrics.report());
+    }
+
+    private void option11() {
+        output.setCompact(!output.isCompact());
+        System.out.println(output.isCompact() ? "Compact output" : "Pretty output");
+    }
+
     private void option10() {
         BigDecimal priceFrom = UserDataService.getDecimal("Price from?");
         BigDecimal priceTo = UserDataService.getDecimal("Price to?");
-        System.out.println(toJson(carsService.inPriceRange(priceFrom,priceTo)));
+        output.writeAll(carsService.inPriceRange(priceFrom,priceTo));
     }
 
     private void option9() {
-        System.out.println(toJson(carsService.componentsInCars()));
+        output.writeAll(carsService.componentsInCars());
     }
 
     private void option8() {
-        System.out.println(toJson(carsService.sortComponents()));
+        output.writeAll(carsService.sortComponents());
     }
 
     private void option7() {
-        System.out.println(toJson(carsService.mostExpensive()));
+        output.writeAll(carsService.mostExpensive());
     }
 
     private void option6() {
-        System.out.println(carsService.priceStats());
+        output.writeText(carsService.priceStats());
     }
 
     private void option5() {
-        System.out.println(toJson(carsService.mostExpensiveModel()));
+        output.writeAll(carsService.mostExpensiveModel());
     }
 
     private void option4() {
-        System.out.println(toJson(carsService.carColors()));
+        output.write(carsService.carColors());
     }
 
     private void option1() {
-        System.out.println(toJson(carsService));
+        output.writeAll(carsService.getCars());
     }
 
     private void option2() {
         SortCriterion sortCriterion = UserDataService.getSortCriterion();
         boolean ascending = UserDataService.getBoolean("Ascending?");
-        List<Car> cars = carsService.sortCars(sortCriterion, ascending);
-        System.out.println(toJson(cars));
+        int pageSize = UserDataService.getInteger("Page size? (0 - all cars)");
+        List<Car> cars = pageSize == 0
+                ? carsService.sortCars(sortCriterion, ascending)
+                : carsService.sortCars(sortCriterion, ascending, pageOffset(pageSize), pageSize);
+        output.writeAll(cars);
     }
 
     private void option3() {
         double mileage = UserDataService.getDouble("Type mileage");
-        System.out.println(toJson(carsService.greaterMileage(mileage)));
+        int pageSize = UserDataService.getInteger("Page size? (0 - all cars)");
+        List<Car> cars = pageSize == 0
+                ? carsService.greaterMileage(mileage)
+                : carsService.greaterMileage(mileage, pageOffset(pageSize), pageSize);
+        output.writeAll(cars);
     }
 
-    private static <T> String toJson(T item) {
-        Gson gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .create();
-        return gson.toJson(item);
+    private static int pageOffset(int pageSize) {
+        int page = UserDataService.getInteger("Page number? (from 1)");
+        if (page < 1) {
+            throw new UserDataException("Page number has to be positive");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) (page - 1) * pageSize);
     }
 
 }
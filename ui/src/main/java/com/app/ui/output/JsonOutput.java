@@ -0,0 +1,116 @@
+package com.app.ui.output;
+
+import com.app.ui.exceptions.OutputException;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// writes results as json straight to buffered output stream, without building whole json string first
+// Gson instances are thread safe, so they are created once and shared
+public final class JsonOutput {
+
+    private static final Gson PRETTY_GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Gson COMPACT_GSON = new GsonBuilder().create();
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+    private boolean compact;
+
+    public JsonOutput(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    public <T> void write(T item) {
+        try {
+            Gson gson = gson();
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            if (item == null) {
+                jsonWriter.nullValue();
+            } else {
+                gson.toJson(item, item.getClass(), jsonWriter);
+            }
+            finish();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage());
+        }
+    }
+
+    // elements are serialized and written one by one
+    public <T> void writeAll(Iterable<T> items) {
+        try {
+            Gson gson = gson();
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.beginArray();
+            for (T item : items) {
+                writeElement(gson, jsonWriter, item);
+            }
+            jsonWriter.endArray();
+            finish();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage());
+        }
+    }
+
+    // entries are serialized and written one by one, values are written with writeAll rules
+    public <K, V> void writeAll(Map<K, ? extends Iterable<V>> items) {
+        try {
+            Gson gson = gson();
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.beginObject();
+            for (Map.Entry<K, ? extends Iterable<V>> entry : items.entrySet()) {
+                jsonWriter.name(String.valueOf(entry.getKey()));
+                jsonWriter.beginArray();
+                for (V item : entry.getValue()) {
+                    writeElement(gson, jsonWriter, item);
+                }
+                jsonWriter.endArray();
+            }
+            jsonWriter.endObject();
+            finish();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage());
+        }
+    }
+
+    public void writeText(String text) {
+        try {
+            writer.write(text);
+            finish();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage());
+        }
+    }
+
+    private static <T> void writeElement(Gson gson, JsonWriter jsonWriter, T item) throws IOException {
+        if (item == null) {
+            jsonWriter.nullValue();
+        } else {
+            gson.toJson(item, item.getClass(), jsonWriter);
+        }
+    }
+
+    private void finish() throws IOException {
+        writer.write(System.lineSeparator());
+        writer.flush();
+    }
+
+    private Gson gson() {
+        return compact ? COMPACT_GSON : PRETTY_GSON;
+    }
+}
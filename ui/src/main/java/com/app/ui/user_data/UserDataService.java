@@ -1,6 +1,7 @@
 package com.app.ui.user_data;
 
 import com.app.persistence.enums.Color;
+import com.app.persistence.export.ExportFormat;
 import com.app.service.enums.SortCriterion;
 import com.app.ui.exceptions.UserDataException;
 
@@ -46,6 +47,15 @@ public final class UserDataService {
         return Double.parseDouble(value);
     }
 
+    public static String getString(String message) {
+        System.out.println(message);
+        String value = sc.nextLine().trim();
+        if (value.isEmpty()) {
+            throw new UserDataException("value is empty");
+        }
+        return value;
+    }
+
     public static boolean getBoolean(String message) {
         System.out.println(message + " [y/n]");
         String value = sc.nextLine();
@@ -83,6 +93,21 @@ public final class UserDataService {
         return SortCriterion.values()[decision - 1];
     }
 
+    public static ExportFormat getExportFormat() {
+        AtomicInteger counter = new AtomicInteger();
+        String formatsList = Arrays
+                .asList(ExportFormat.values())
+                .stream()
+                .map(format -> counter.incrementAndGet() + ". " + format.toString())
+                .collect(Collectors.joining("\n"));
+        System.out.println(formatsList);
+        int decision;
+        do {
+            decision = getInteger("Choose correct format number:");
+        } while (decision < 1 || decision > ExportFormat.values().length);
+        return ExportFormat.values()[decision - 1];
+    }
+
     public static void close() {
         if (sc != null) {
             sc.close();